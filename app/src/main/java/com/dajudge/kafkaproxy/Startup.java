@@ -17,27 +17,26 @@
 
 package com.dajudge.kafkaproxy;
 
-import static com.dajudge.kafkaproxy.KafkaProxyApplication.create;
+import static com.dajudge.kafkaproxy.KafkaProxyServer.create;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
 
 import com.dajudge.kafkaproxy.config.RealEnvironment;
-import com.dajudge.proxybase.ProxyApplication;
 
 import io.quarkus.runtime.ShutdownEvent;
 import io.quarkus.runtime.StartupEvent;
 
 @ApplicationScoped
 public class Startup {
-    private ProxyApplication application;
+    private KafkaProxyServer server;
 
     void onStart(@Observes StartupEvent ev) {
-        application = create(new RealEnvironment());
-        application.start();
+        server = create(new RealEnvironment());
+        server.start();
     }
 
     void onStop(@Observes ShutdownEvent ev) {
-        application.shutdown();
+        server.shutdown();
     }
 }
@@ -17,6 +17,7 @@
 
 package com.dajudge.kafkaproxy.config;
 
+import com.dajudge.kafkaproxy.ca.selfsign.KeyAlgorithm;
 import com.dajudge.kafkaproxy.ca.selfsign.SelfSignConfig;
 
 public class SelfSignConfigSource implements ConfigSource<SelfSignConfig> {
@@ -27,7 +28,14 @@ public class SelfSignConfigSource implements ConfigSource<SelfSignConfig> {
     private static final String PROP_SELFSIGN_KEY_ALIAS = PREFIX + "KEY_ALIAS";
     private static final String PROP_SELFSIGN_KEY_PASSWORD = PREFIX + "KEY_PASSWORD";
     private static final String PROP_SELFSIGN_SIGNATURE_ALGORITHM = PREFIX + "SIGNATURE_ALGORITHM";
+    private static final String PROP_SELFSIGN_CERTIFICATE_CACHE_SIZE = PREFIX + "CERTIFICATE_CACHE_SIZE";
+    private static final String PROP_SELFSIGN_KEY_ALGORITHM = PREFIX + "KEY_ALGORITHM";
+    private static final String PROP_SELFSIGN_KEY_POOL_SIZE = PREFIX + "KEY_POOL_SIZE";
+    private static final String PROP_SELFSIGN_KEY_POOL_THREADS = PREFIX + "KEY_POOL_THREADS";
     private static final String DEAFULT_ALGORITHM = "SHA256withRSA";
+    private static final int DEFAULT_CERTIFICATE_CACHE_SIZE = 1024;
+    private static final int DEFAULT_KEY_POOL_SIZE = 16;
+    private static final int DEFAULT_KEY_POOL_THREADS = 1;
 
     @Override
     public Class<SelfSignConfig> getConfigClass() {
@@ -42,7 +50,11 @@ public class SelfSignConfigSource implements ConfigSource<SelfSignConfig> {
                 environment.optionalString(PROP_SELFSIGN_KEYSTORE_PASSWORD).orElse(null),
                 environment.requiredString(PROP_SELFSIGN_KEY_ALIAS),
                 environment.optionalString(PROP_SELFSIGN_KEY_PASSWORD).orElse(null),
-                environment.requiredString(PROP_SELFSIGN_SIGNATURE_ALGORITHM, DEAFULT_ALGORITHM)
+                environment.requiredString(PROP_SELFSIGN_SIGNATURE_ALGORITHM, DEAFULT_ALGORITHM),
+                environment.requiredInt(PROP_SELFSIGN_CERTIFICATE_CACHE_SIZE, DEFAULT_CERTIFICATE_CACHE_SIZE),
+                KeyAlgorithm.valueOf(environment.requiredString(PROP_SELFSIGN_KEY_ALGORITHM, KeyAlgorithm.RSA.name())),
+                environment.requiredInt(PROP_SELFSIGN_KEY_POOL_SIZE, DEFAULT_KEY_POOL_SIZE),
+                environment.requiredInt(PROP_SELFSIGN_KEY_POOL_THREADS, DEFAULT_KEY_POOL_THREADS)
         );
     }
 }
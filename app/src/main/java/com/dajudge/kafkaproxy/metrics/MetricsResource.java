@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy.metrics;
+
+import com.dajudge.proxybase.metrics.Metrics;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+
+import static java.util.stream.Collectors.joining;
+import static javax.ws.rs.core.MediaType.TEXT_PLAIN;
+
+@Path("/metrics")
+public class MetricsResource {
+    @GET
+    @Produces(TEXT_PLAIN)
+    public String metrics() {
+        return Metrics.snapshot().entrySet().stream()
+                .map(metric -> metric.getKey() + " " + metric.getValue() + "\n")
+                .collect(joining());
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy.ca.selfsign;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * Measures the latency of issuing an impostor certificate on a cache miss for each key algorithm, with the key pair
+ * generated during issuance versus taken from a pool of pre-generated key pairs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+public class ImpostorCertificateBenchmark {
+    private static final String ISSUER_DN = "CN=kafkaproxy";
+    private static final String SIGNATURE_ALGORITHM = "SHA256withRSA";
+    private static final String PASSWORD = "changeit";
+
+    @Param({"RSA", "EC"})
+    public KeyAlgorithm keyAlgorithm;
+
+    private PrivateKey caKey;
+    private X509Certificate client;
+    private KeyPair pooledKeyPair;
+
+    @Setup
+    public void setup() {
+        caKey = Helpers.keyPair().getPrivate();
+        client = Helpers.selfSignedCert("CN=client", Helpers.keyPair(), 1, SIGNATURE_ALGORITHM, false);
+        pooledKeyPair = Helpers.keyPair(keyAlgorithm);
+    }
+
+    @Benchmark
+    public KeyStore generatedKeyPair() {
+        return issue(Helpers.keyPair(keyAlgorithm));
+    }
+
+    @Benchmark
+    public KeyStore pooledKeyPair() {
+        return issue(pooledKeyPair);
+    }
+
+    private KeyStore issue(final KeyPair keyPair) {
+        return SelfSignCertificateAuthority.createProxyCertificate(
+                ISSUER_DN,
+                client,
+                SIGNATURE_ALGORITHM,
+                caKey,
+                keyPair,
+                PASSWORD
+        );
+    }
+}
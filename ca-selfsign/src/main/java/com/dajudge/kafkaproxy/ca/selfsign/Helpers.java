@@ -32,6 +32,7 @@ import org.bouncycastle.operator.DefaultDigestAlgorithmIdentifierFinder;
 import org.bouncycastle.operator.DefaultSignatureAlgorithmIdentifierFinder;
 import org.bouncycastle.operator.OperatorCreationException;
 import org.bouncycastle.operator.bc.BcRSAContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -100,11 +101,6 @@ public final class Helpers {
             final boolean isTrustAnchor
     ) {
         try {
-            final AlgorithmIdentifier sigAlgId = new DefaultSignatureAlgorithmIdentifierFinder()
-                    .find(algorithm);
-            final AlgorithmIdentifier digAlgId = new DefaultDigestAlgorithmIdentifierFinder()
-                    .find(sigAlgId);
-
             final X509v3CertificateBuilder certGenerator = new X509v3CertificateBuilder(
                     new X500Name(issuerDn),
                     BigInteger.valueOf(SECURE_RANDOM.nextInt()),
@@ -116,8 +112,7 @@ public final class Helpers {
             if (isTrustAnchor) {
                 certGenerator.addExtension(new ASN1ObjectIdentifier("2.5.29.19"), false, new BasicConstraints(true));
             }
-            final ContentSigner sigGen = new BcRSAContentSignerBuilder(sigAlgId, digAlgId)
-                    .build(PrivateKeyFactory.createKey(signingKey.getEncoded()));
+            final ContentSigner sigGen = contentSigner(signingKey, algorithm);
 
             final X509CertificateHolder holder = certGenerator.build(sigGen);
             final Certificate eeX509CertificateStructure = holder.toASN1Structure();
@@ -131,10 +126,30 @@ public final class Helpers {
         }
     }
 
+    private static ContentSigner contentSigner(
+            final PrivateKey signingKey,
+            final String algorithm
+    ) throws IOException, OperatorCreationException {
+        // RSA CAs keep the lightweight BouncyCastle signer they have always used
+        if (!"RSA".equals(signingKey.getAlgorithm())) {
+            return new JcaContentSignerBuilder(algorithm).build(signingKey);
+        }
+        final AlgorithmIdentifier sigAlgId = new DefaultSignatureAlgorithmIdentifierFinder()
+                .find(algorithm);
+        final AlgorithmIdentifier digAlgId = new DefaultDigestAlgorithmIdentifierFinder()
+                .find(sigAlgId);
+        return new BcRSAContentSignerBuilder(sigAlgId, digAlgId)
+                .build(PrivateKeyFactory.createKey(signingKey.getEncoded()));
+    }
+
     public static KeyPair keyPair() {
+        return keyPair(KeyAlgorithm.RSA);
+    }
+
+    public static KeyPair keyPair(final KeyAlgorithm algorithm) {
         return call(() -> {
-            final KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
-            kpg.initialize(2048);
+            final KeyPairGenerator kpg = KeyPairGenerator.getInstance(algorithm.name());
+            kpg.initialize(algorithm.getParameterSpec(), SECURE_RANDOM);
             return kpg.generateKeyPair();
         });
     }
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy.ca.selfsign;
+
+import java.security.spec.AlgorithmParameterSpec;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.RSAKeyGenParameterSpec;
+
+public enum KeyAlgorithm {
+    RSA(new RSAKeyGenParameterSpec(2048, RSAKeyGenParameterSpec.F4)),
+    EC(new ECGenParameterSpec("secp256r1"));
+
+    private final AlgorithmParameterSpec parameterSpec;
+
+    KeyAlgorithm(final AlgorithmParameterSpec parameterSpec) {
+        this.parameterSpec = parameterSpec;
+    }
+
+    public AlgorithmParameterSpec getParameterSpec() {
+        return parameterSpec;
+    }
+}
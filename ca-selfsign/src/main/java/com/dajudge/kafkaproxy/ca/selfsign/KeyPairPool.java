@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy.ca.selfsign;
+
+import com.dajudge.proxybase.metrics.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static com.dajudge.proxybase.metrics.Metrics.counter;
+
+class KeyPairPool {
+    private static final Logger LOG = LoggerFactory.getLogger(KeyPairPool.class);
+    private final Counter hits = counter("impostor_key_pool_hits");
+    private final Counter misses = counter("impostor_key_pool_misses");
+    private final KeyAlgorithm algorithm;
+    private final BlockingQueue<KeyPair> keyPairs;
+    private final List<Thread> refillThreads = new ArrayList<>();
+
+    KeyPairPool(final KeyAlgorithm algorithm, final int size, final int threads) {
+        this.algorithm = algorithm;
+        this.keyPairs = size > 0 ? new ArrayBlockingQueue<>(size) : null;
+        if (keyPairs == null) {
+            return;
+        }
+        for (int i = 0; i < threads; i++) {
+            final Thread thread = new Thread(this::refill, "impostor-keygen-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            refillThreads.add(thread);
+        }
+    }
+
+    void close() {
+        refillThreads.forEach(Thread::interrupt);
+    }
+
+    KeyPair take() {
+        if (keyPairs == null) {
+            return Helpers.keyPair(algorithm);
+        }
+        final KeyPair keyPair = keyPairs.poll();
+        if (keyPair != null) {
+            hits.increment();
+            return keyPair;
+        }
+        misses.increment();
+        return Helpers.keyPair(algorithm);
+    }
+
+    private void refill() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                keyPairs.put(Helpers.keyPair(algorithm));
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final RuntimeException e) {
+            LOG.error("Failed to generate {} key pair, stopping refill thread", algorithm, e);
+        }
+    }
+}
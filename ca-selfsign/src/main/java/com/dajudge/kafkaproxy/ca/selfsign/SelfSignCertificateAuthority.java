@@ -20,6 +20,7 @@ package com.dajudge.kafkaproxy.ca.selfsign;
 import com.dajudge.proxybase.ca.CertificateAuthority;
 import com.dajudge.proxybase.ca.KeyStoreWrapper;
 import com.dajudge.proxybase.ca.UpstreamCertificateSupplier;
+import com.dajudge.proxybase.metrics.Counter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,10 +29,19 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.security.*;
 import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Supplier;
 
+import static com.dajudge.proxybase.metrics.Metrics.counter;
+import static java.lang.System.currentTimeMillis;
 import static java.util.UUID.randomUUID;
 
 public class SelfSignCertificateAuthority implements CertificateAuthority {
@@ -40,6 +50,11 @@ public class SelfSignCertificateAuthority implements CertificateAuthority {
     private final String algorithm;
     private final String issuerDn;
     private final PrivateKey caKeyPair;
+    private final Counter hits = counter("impostor_certificate_cache_hits");
+    private final Counter misses = counter("impostor_certificate_cache_misses");
+    private final Map<String, CachedCertificate> certificates;
+    private final Map<String, CompletableFuture<KeyStoreWrapper>> pending = new HashMap<>();
+    private final KeyPairPool keyPairPool;
 
     public SelfSignCertificateAuthority(
             final SelfSignConfig config
@@ -53,31 +68,106 @@ public class SelfSignCertificateAuthority implements CertificateAuthority {
             keyStore.load(data, config.getKeyStorePassword());
         }
         this.caKeyPair = loadKey(keyStore, alias, config.getKeyPassword());
+        this.keyPairPool = new KeyPairPool(
+                config.getKeyAlgorithm(),
+                config.getKeyPoolSize(),
+                config.getKeyPoolThreads()
+        );
+        final int cacheSize = config.getCertificateCacheSize();
+        this.certificates = new LinkedHashMap<String, CachedCertificate>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, CachedCertificate> eldest) {
+                return size() > cacheSize;
+            }
+        };
     }
 
     @Override
     public KeyStoreWrapper createClientCertificate(
             final UpstreamCertificateSupplier certificateSupplier
     ) throws SSLPeerUnverifiedException {
-        final String keyPassword = randomUUID().toString();
-        return new KeyStoreWrapper(
-                createProxyCertificate(issuerDn, certificateSupplier.get(), algorithm, caKeyPair, keyPassword),
-                keyPassword
-        );
+        final X509Certificate client = certificateSupplier.get();
+        final String fingerprint = fingerprint(client);
+        final CompletableFuture<KeyStoreWrapper> inFlight;
+        final CompletableFuture<KeyStoreWrapper> issuance = new CompletableFuture<>();
+        synchronized (certificates) {
+            final CachedCertificate cached = certificates.get(fingerprint);
+            if (cached != null && cached.notAfter > currentTimeMillis()) {
+                hits.increment();
+                return cached.keyStore;
+            }
+            certificates.remove(fingerprint);
+            inFlight = pending.putIfAbsent(fingerprint, issuance);
+        }
+        if (inFlight != null) {
+            // Another connection of the same client is already being issued an identity, share it
+            hits.increment();
+            return await(inFlight);
+        }
+        return issue(fingerprint, client, issuance);
+    }
+
+    private KeyStoreWrapper issue(
+            final String fingerprint,
+            final X509Certificate client,
+            final CompletableFuture<KeyStoreWrapper> issuance
+    ) {
+        misses.increment();
+        try {
+            final String keyPassword = randomUUID().toString();
+            final KeyStoreWrapper keyStore = new KeyStoreWrapper(
+                    createProxyCertificate(issuerDn, client, algorithm, caKeyPair, keyPairPool.take(), keyPassword),
+                    keyPassword
+            );
+            synchronized (certificates) {
+                certificates.put(fingerprint, new CachedCertificate(keyStore, client.getNotAfter().getTime()));
+                pending.remove(fingerprint);
+            }
+            issuance.complete(keyStore);
+            return keyStore;
+        } catch (final RuntimeException e) {
+            synchronized (certificates) {
+                pending.remove(fingerprint);
+            }
+            issuance.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static KeyStoreWrapper await(final CompletableFuture<KeyStoreWrapper> issuance) {
+        try {
+            return issuance.join();
+        } catch (final CompletionException e) {
+            throw new RuntimeException("Failed to create proxy client-certificate", e.getCause());
+        }
     }
 
-    private static KeyStore createProxyCertificate(
+    @Override
+    public void close() {
+        keyPairPool.close();
+    }
+
+    private static String fingerprint(final X509Certificate certificate) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(certificate.getEncoded());
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (final NoSuchAlgorithmException | CertificateEncodingException e) {
+            throw new RuntimeException("Failed to fingerprint client certificate", e);
+        }
+    }
+
+    static KeyStore createProxyCertificate(
             final String issuerDn,
             final X509Certificate client,
             final String algorithm,
             final PrivateKey caKey,
+            final KeyPair keyPair,
             final String keyPassword
     ) {
         try {
             LOG.info("Creating impostor certificate for \"{}\"...", client.getSubjectDN().getName());
             final KeyStore keystore = KeyStore.getInstance("jks");
             keystore.load(null, null);
-            final KeyPair keyPair = Helpers.keyPair();
             final X509Certificate cert = Helpers.sign(
                     client.getSubjectDN().getName(),
                     issuerDn,
@@ -102,4 +192,14 @@ public class SelfSignCertificateAuthority implements CertificateAuthority {
             throw new IllegalArgumentException("Failed to recover key from keystore", e);
         }
     }
+
+    private static final class CachedCertificate {
+        private final KeyStoreWrapper keyStore;
+        private final long notAfter;
+
+        private CachedCertificate(final KeyStoreWrapper keyStore, final long notAfter) {
+            this.keyStore = keyStore;
+            this.notAfter = notAfter;
+        }
+    }
 }
@@ -27,6 +27,10 @@ public class SelfSignConfig {
     private final String signatureAlgorithm;
     private final Supplier<InputStream> keyStore;
     private final String keyStorePassword;
+    private final int certificateCacheSize;
+    private final KeyAlgorithm keyAlgorithm;
+    private final int keyPoolSize;
+    private final int keyPoolThreads;
 
     public SelfSignConfig(
             final String issuerDn,
@@ -34,14 +38,31 @@ public class SelfSignConfig {
             final String keyStorePassword,
             final String keyAlias,
             final String keyPassword,
-            final String signatureAlgorithm
+            final String signatureAlgorithm,
+            final int certificateCacheSize,
+            final KeyAlgorithm keyAlgorithm,
+            final int keyPoolSize,
+            final int keyPoolThreads
     ) {
+        if (certificateCacheSize < 0) {
+            throw new IllegalArgumentException("Certificate cache size must not be negative: " + certificateCacheSize);
+        }
+        if (keyPoolSize < 0) {
+            throw new IllegalArgumentException("Key pool size must not be negative: " + keyPoolSize);
+        }
+        if (keyPoolThreads < 1) {
+            throw new IllegalArgumentException("Key pool threads must be positive: " + keyPoolThreads);
+        }
         this.issuerDn = issuerDn;
         this.keyStore = keyStore;
         this.keyStorePassword = keyStorePassword;
         this.keyAlias = keyAlias;
         this.keyPassword = keyPassword;
         this.signatureAlgorithm = signatureAlgorithm;
+        this.certificateCacheSize = certificateCacheSize;
+        this.keyAlgorithm = keyAlgorithm;
+        this.keyPoolSize = keyPoolSize;
+        this.keyPoolThreads = keyPoolThreads;
     }
 
 
@@ -68,4 +89,20 @@ public class SelfSignConfig {
     public String getIssuerDn() {
         return issuerDn;
     }
+
+    public int getCertificateCacheSize() {
+        return certificateCacheSize;
+    }
+
+    public KeyAlgorithm getKeyAlgorithm() {
+        return keyAlgorithm;
+    }
+
+    public int getKeyPoolSize() {
+        return keyPoolSize;
+    }
+
+    public int getKeyPoolThreads() {
+        return keyPoolThreads;
+    }
 }
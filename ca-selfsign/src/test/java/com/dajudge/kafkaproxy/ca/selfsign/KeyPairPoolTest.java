@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy.ca.selfsign;
+
+import com.dajudge.proxybase.metrics.Counter;
+import org.junit.Test;
+
+import java.security.KeyPair;
+import java.util.function.BooleanSupplier;
+
+import static com.dajudge.proxybase.metrics.Metrics.counter;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KeyPairPoolTest {
+    private final Counter hits = counter("impostor_key_pool_hits");
+    private final Counter misses = counter("impostor_key_pool_misses");
+
+    @Test
+    public void takes_pregenerated_key_pairs() throws InterruptedException {
+        final KeyPairPool pool = new KeyPairPool(KeyAlgorithm.EC, 4, 1);
+        try {
+            final long hitsBefore = hits.get();
+            waitFor(() -> {
+                assertEquals("EC", pool.take().getPublic().getAlgorithm());
+                return hits.get() > hitsBefore;
+            });
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void generates_key_pairs_inline_when_disabled() {
+        final long missesBefore = misses.get();
+        final KeyPairPool pool = new KeyPairPool(KeyAlgorithm.RSA, 0, 1);
+        try {
+            final KeyPair keyPair = pool.take();
+
+            assertEquals("RSA", keyPair.getPublic().getAlgorithm());
+            assertEquals(missesBefore, misses.get());
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void close_stops_refill_threads() throws InterruptedException {
+        final KeyPairPool pool = new KeyPairPool(KeyAlgorithm.EC, 2, 3);
+        assertTrue(refillThreads() >= 3);
+
+        pool.close();
+
+        waitFor(() -> refillThreads() == 0);
+    }
+
+    private static long refillThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(Thread::isAlive)
+                .filter(thread -> thread.getName().startsWith("impostor-keygen-"))
+                .count();
+    }
+
+    private static void waitFor(final BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + SECONDS.toMillis(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue("Condition not met in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy.ca.selfsign;
+
+import com.dajudge.proxybase.ca.KeyStoreWrapper;
+import com.dajudge.proxybase.metrics.Counter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.dajudge.proxybase.metrics.Metrics.counter;
+import static java.lang.System.currentTimeMillis;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class SelfSignCertificateAuthorityTest {
+    private static final String ISSUER_DN = "CN=kafkaproxy CA";
+    private static final String SIGNATURE_ALGORITHM = "SHA256withRSA";
+    private static final String PASSWORD = "changeit";
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final KeyPair CA_KEY_PAIR = Helpers.keyPair();
+    private static final byte[] CA_KEY_STORE = Helpers.createJks(PASSWORD, keyStore -> keyStore.setKeyEntry(
+            "ca",
+            CA_KEY_PAIR.getPrivate(),
+            PASSWORD.toCharArray(),
+            new Certificate[]{Helpers.selfSignedCert(ISSUER_DN, CA_KEY_PAIR, 1, SIGNATURE_ALGORITHM, true)}
+    ));
+
+    private final Counter hits = counter("impostor_certificate_cache_hits");
+    private final Counter misses = counter("impostor_certificate_cache_misses");
+    private final List<SelfSignCertificateAuthority> authorities = new ArrayList<>();
+    private long hitsBefore;
+    private long missesBefore;
+
+    @Before
+    public void setUp() {
+        hitsBefore = hits.get();
+        missesBefore = misses.get();
+    }
+
+    @After
+    public void tearDown() {
+        authorities.forEach(SelfSignCertificateAuthority::close);
+    }
+
+    @Test
+    public void issues_verifiable_rsa_impostor_certificate() throws Exception {
+        assertVerifiableImpostor(KeyAlgorithm.RSA);
+    }
+
+    @Test
+    public void issues_verifiable_ec_impostor_certificate() throws Exception {
+        assertVerifiableImpostor(KeyAlgorithm.EC);
+    }
+
+    @Test
+    public void reuses_identity_for_same_client_certificate() throws Exception {
+        final SelfSignCertificateAuthority ca = authority(10);
+        final X509Certificate client = client("CN=client", currentTimeMillis() + DAY);
+
+        final KeyStoreWrapper first = ca.createClientCertificate(() -> client);
+        final KeyStoreWrapper second = ca.createClientCertificate(() -> client);
+
+        assertSame(first, second);
+        assertEquals(1, hits.get() - hitsBefore);
+        assertEquals(1, misses.get() - missesBefore);
+    }
+
+    @Test
+    public void issues_new_identity_for_expired_client_certificate() throws Exception {
+        final SelfSignCertificateAuthority ca = authority(10);
+        final X509Certificate client = client("CN=client", currentTimeMillis() - DAY);
+
+        final KeyStoreWrapper first = ca.createClientCertificate(() -> client);
+        final KeyStoreWrapper second = ca.createClientCertificate(() -> client);
+
+        assertNotSame(first, second);
+        assertEquals(0, hits.get() - hitsBefore);
+        assertEquals(2, misses.get() - missesBefore);
+    }
+
+    @Test
+    public void evicts_least_recently_used_identity() throws Exception {
+        final SelfSignCertificateAuthority ca = authority(2);
+        final X509Certificate a = client("CN=a", currentTimeMillis() + DAY);
+        final X509Certificate b = client("CN=b", currentTimeMillis() + DAY);
+        final X509Certificate c = client("CN=c", currentTimeMillis() + DAY);
+
+        final KeyStoreWrapper identityA = ca.createClientCertificate(() -> a);
+        final KeyStoreWrapper identityB = ca.createClientCertificate(() -> b);
+        ca.createClientCertificate(() -> a);
+        ca.createClientCertificate(() -> c);
+
+        assertSame(identityA, ca.createClientCertificate(() -> a));
+        assertNotSame(identityB, ca.createClientCertificate(() -> b));
+    }
+
+    @Test
+    public void cache_size_zero_disables_cache() throws Exception {
+        final SelfSignCertificateAuthority ca = authority(0);
+        final X509Certificate client = client("CN=client", currentTimeMillis() + DAY);
+
+        final KeyStoreWrapper first = ca.createClientCertificate(() -> client);
+        final KeyStoreWrapper second = ca.createClientCertificate(() -> client);
+
+        assertNotSame(first, second);
+        assertEquals(0, hits.get() - hitsBefore);
+        assertEquals(2, misses.get() - missesBefore);
+    }
+
+    @Test
+    public void concurrent_requests_for_same_client_share_issuance() throws Exception {
+        final SelfSignCertificateAuthority ca = authority(10);
+        final X509Certificate client = client("CN=client", currentTimeMillis() + DAY);
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = newFixedThreadPool(threads);
+        try {
+            final List<Future<KeyStoreWrapper>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return ca.createClientCertificate(() -> client);
+                }));
+            }
+            start.countDown();
+
+            final KeyStoreWrapper identity = results.get(0).get();
+            for (final Future<KeyStoreWrapper> result : results) {
+                assertSame(identity, result.get());
+            }
+            assertEquals(1, misses.get() - missesBefore);
+            assertEquals(threads - 1, hits.get() - hitsBefore);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void assertVerifiableImpostor(final KeyAlgorithm keyAlgorithm) throws Exception {
+        final SelfSignCertificateAuthority ca = authority(10, keyAlgorithm, 1);
+        final X509Certificate client = client("CN=client", currentTimeMillis() + DAY);
+
+        final KeyStoreWrapper identity = ca.createClientCertificate(() -> client);
+
+        final KeyStore keyStore = identity.getKeyStore();
+        final X509Certificate impostor = (X509Certificate) keyStore.getCertificate("key");
+        final PrivateKey key = (PrivateKey) keyStore.getKey("key", identity.getKeyPassword().toCharArray());
+        impostor.verify(CA_KEY_PAIR.getPublic());
+        assertEquals(client.getSubjectX500Principal(), impostor.getSubjectX500Principal());
+        assertEquals(client.getNotAfter(), impostor.getNotAfter());
+        assertEquals(keyAlgorithm.name(), impostor.getPublicKey().getAlgorithm());
+        assertEquals(keyAlgorithm.name(), key.getAlgorithm());
+    }
+
+    private SelfSignCertificateAuthority authority(final int cacheSize) throws Exception {
+        return authority(cacheSize, KeyAlgorithm.RSA, 0);
+    }
+
+    private SelfSignCertificateAuthority authority(
+            final int cacheSize,
+            final KeyAlgorithm keyAlgorithm,
+            final int keyPoolSize
+    ) throws Exception {
+        final SelfSignCertificateAuthority ca = new SelfSignCertificateAuthority(new SelfSignConfig(
+                ISSUER_DN,
+                () -> new ByteArrayInputStream(CA_KEY_STORE),
+                PASSWORD,
+                "ca",
+                PASSWORD,
+                SIGNATURE_ALGORITHM,
+                cacheSize,
+                keyAlgorithm,
+                keyPoolSize,
+                1
+        ));
+        authorities.add(ca);
+        return ca;
+    }
+
+    private static X509Certificate client(final String dn, final long notAfter) {
+        final KeyPair keyPair = Helpers.keyPair();
+        return Helpers.sign(
+                dn,
+                dn,
+                keyPair.getPrivate(),
+                SIGNATURE_ALGORITHM,
+                keyPair.getPublic(),
+                new Date(notAfter - 2 * DAY),
+                new Date(notAfter),
+                false
+        );
+    }
+}
@@ -18,36 +18,220 @@
 package com.dajudge.kafkaproxy;
 
 import com.dajudge.kafkaproxy.config.BrokerConfigSource;
+import com.dajudge.kafkaproxy.config.BrokerConfigSource.BrokerMapEntry;
+import com.dajudge.kafkaproxy.config.BrokerConfigSource.PortAssignment;
 import com.dajudge.proxybase.config.Endpoint;
+import com.dajudge.proxybase.config.SniConfig;
 
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import static com.dajudge.kafkaproxy.config.BrokerConfigSource.BrokerMapEntry.NO_NODE_ID;
+import static com.dajudge.kafkaproxy.config.BrokerConfigSource.PortAssignment.NODE_ID;
+import static java.lang.Math.floorMod;
+import static java.lang.Math.min;
 
 public class BrokerMapper {
-    private final Map<String, BrokerMapping> allMappings = new HashMap<>();
+    private final Map<Integer, MappedBroker> nodeMappings = new HashMap<>();
+    private final Map<Endpoint, MappedBroker> endpointMappings = new HashMap<>();
+    private final Set<Integer> reservedPorts = new HashSet<>();
+    private final Set<Integer> pinnedPorts = new HashSet<>();
     private final String proxyHostname;
+    private final SniConfig sniConfig;
     private final List<Endpoint> bootstrapBrokers;
+    private final List<BrokerMapEntry> knownBrokers = new ArrayList<>();
+    private final BrokerMappingJournal journal;
+    private final PortAssignment portAssignment;
+    private final int nodeBasePort;
+    private final int nodePortRange;
     private int nextBrokerPort;
 
-    public BrokerMapper(final BrokerConfigSource.BrokerConfig brokerConfig) {
-        nextBrokerPort = brokerConfig.getProxyBasePort();
+    public BrokerMapper(final BrokerConfigSource.BrokerConfig brokerConfig, final SniConfig sniConfig) {
+        portAssignment = brokerConfig.getPortAssignment();
+        nodeBasePort = brokerConfig.getProxyBasePort();
+        nodePortRange = portAssignment.isDeterministic() ? brokerConfig.getPortRange() : 0;
+        nextBrokerPort = nodeBasePort + nodePortRange;
         proxyHostname = brokerConfig.getProxyHostname();
+        this.sniConfig = sniConfig;
         bootstrapBrokers = brokerConfig.getBootstrapBrokers();
+        if (brokerConfig.getBootstrapPort() > 0) {
+            reservedPorts.add(brokerConfig.getBootstrapPort());
+        }
+        brokerConfig.getBrokerMap().forEach(entry -> {
+            reserve(entry);
+            pinnedPorts.add(entry.getProxyPort());
+        });
+        if (brokerConfig.getBrokerJournalFile() != null) {
+            journal = new BrokerMappingJournal(Paths.get(brokerConfig.getBrokerJournalFile()));
+            final Map<Object, BrokerMapEntry> journaled = new LinkedHashMap<>();
+            journal.load().stream()
+                    .filter(entry -> !isReserved(entry))
+                    .forEach(entry -> {
+                        if (entry.hasNodeId() && !portAssignment.isDeterministic()) {
+                            journaled.remove(entry.getBroker());
+                        }
+                        journaled.put(keyOf(entry), entry);
+                    });
+            final Set<Integer> journaledPorts = new HashSet<>();
+            journaled.values().removeIf(entry -> !journaledPorts.add(entry.getProxyPort()));
+            journaled.values().forEach(this::reserve);
+            journal.rewrite(journaled.values());
+        } else {
+            journal = null;
+        }
+    }
+
+    private boolean isReserved(final BrokerMapEntry entry) {
+        return reservedPorts.contains(entry.getProxyPort())
+                || endpointMappings.containsKey(entry.getBroker())
+                || nodeMappings.containsKey(entry.getNodeId());
+    }
+
+    private static Object keyOf(final BrokerMapEntry entry) {
+        return entry.hasNodeId() ? entry.getNodeId() : entry.getBroker();
+    }
+
+    private void reserve(final BrokerMapEntry entry) {
+        final MappedBroker mapped = mapped(entry);
+        reservedPorts.add(entry.getProxyPort());
+        endpointMappings.put(entry.getBroker(), mapped);
+        if (entry.hasNodeId()) {
+            nodeMappings.put(entry.getNodeId(), mapped);
+        }
+        knownBrokers.add(entry);
     }
 
     public synchronized BrokerMapping getBrokerMapping(final Endpoint brokerEndpoint) {
-        return allMappings.computeIfAbsent(keyOf(brokerEndpoint), key -> new BrokerMapping(
-                brokerEndpoint,
-                new Endpoint(proxyHostname, nextBrokerPort++)
-        ));
+        return endpointMappings.computeIfAbsent(brokerEndpoint, key ->
+                mapped(record(new BrokerMapEntry(NO_NODE_ID, brokerEndpoint, nextFreePort())))
+        ).mapping;
+    }
+
+    public synchronized BrokerMapping getBrokerMapping(final int nodeId, final Endpoint brokerEndpoint) {
+        final MappedBroker existing = nodeMappings.get(nodeId);
+        if (existing != null && existing.entry.getBroker().equals(brokerEndpoint)) {
+            return existing.mapping;
+        }
+        final BrokerMapEntry entry;
+        if (existing != null) {
+            endpointMappings.remove(existing.entry.getBroker(), existing);
+            entry = record(new BrokerMapEntry(nodeId, brokerEndpoint, existing.entry.getProxyPort()));
+        } else if (portAssignment.isDeterministic()) {
+            entry = record(new BrokerMapEntry(nodeId, brokerEndpoint, nodePort(nodeId)));
+        } else {
+            final MappedBroker adopted = endpointMappings.get(brokerEndpoint);
+            final int proxyPort = adopted == null || adopted.entry.hasNodeId()
+                    ? nextFreePort()
+                    : adopted.entry.getProxyPort();
+            entry = record(new BrokerMapEntry(nodeId, brokerEndpoint, proxyPort));
+        }
+        final MappedBroker mapped = mapped(entry);
+        nodeMappings.put(nodeId, mapped);
+        if (portAssignment.isDeterministic()) {
+            endpointMappings.putIfAbsent(brokerEndpoint, mapped);
+        } else {
+            endpointMappings.put(brokerEndpoint, mapped);
+        }
+        return mapped.mapping;
+    }
+
+    // Frees the port of a departed broker known by its endpoint alone, nodes and the broker map keep their ports
+    public synchronized void release(final BrokerMapping mapping) {
+        final MappedBroker mapped = endpointMappings.get(mapping.getBroker());
+        if (mapped == null
+                || !mapped.mapping.getProxy().equals(mapping.getProxy())
+                || mapped.entry.hasNodeId()
+                || pinnedPorts.contains(mapped.entry.getProxyPort())) {
+            return;
+        }
+        endpointMappings.remove(mapping.getBroker());
+        knownBrokers.remove(mapped.entry);
+        reservedPorts.remove(mapped.entry.getProxyPort());
+        if (mapped.entry.getProxyPort() >= nodeBasePort + nodePortRange) {
+            nextBrokerPort = min(nextBrokerPort, mapped.entry.getProxyPort());
+        }
+    }
+
+    // Replicas must advertise the same port for a node regardless of the order in which they discover the nodes, so a
+    // node without a port of its own is refused instead of being moved to another port
+    private int nodePort(final int nodeId) {
+        if (portAssignment == NODE_ID && (nodeId < 0 || nodeId >= nodePortRange)) {
+            throw refuse(nodeId, "its node ID is outside of the broker port range " + nodePortRange);
+        }
+        final int port = nodeBasePort + floorMod(portAssignment == NODE_ID ? nodeId : mix(nodeId), nodePortRange);
+        if (!reservedPorts.add(port)) {
+            throw refuse(nodeId, "its port " + port + " is already taken");
+        }
+        return port;
+    }
+
+    private static IllegalStateException refuse(final int nodeId, final String reason) {
+        return new IllegalStateException("Cannot map node " + nodeId + " to a proxy port, " + reason
+                + ". Map the node in the broker map or change the broker port range.");
+    }
+
+    private static int mix(final int nodeId) {
+        int hash = nodeId;
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    private BrokerMapEntry record(final BrokerMapEntry entry) {
+        if (journal != null) {
+            journal.append(entry);
+        }
+        return entry;
+    }
+
+    private MappedBroker mapped(final BrokerMapEntry entry) {
+        return new MappedBroker(entry, new BrokerMapping(entry.getBroker(), proxyEndpoint(entry.getProxyPort())));
+    }
+
+    private Endpoint proxyEndpoint(final int proxyPort) {
+        if (sniConfig.isEnabled()) {
+            return new Endpoint(sniConfig.hostnameOf(proxyPort), sniConfig.getPort());
+        }
+        return new Endpoint(proxyHostname, proxyPort);
+    }
+
+    private int nextFreePort() {
+        while (reservedPorts.contains(nextBrokerPort)) {
+            nextBrokerPort++;
+        }
+        return nextBrokerPort++;
     }
 
     public List<Endpoint> getBootstrapBrokers() {
         return bootstrapBrokers;
     }
 
-    private String keyOf(final Endpoint host) {
-        return host.getHost() + host.getPort();
+    public List<BrokerMapEntry> getKnownBrokers() {
+        return knownBrokers;
+    }
+
+    public void close() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private static final class MappedBroker {
+        private final BrokerMapEntry entry;
+        private final BrokerMapping mapping;
+
+        private MappedBroker(final BrokerMapEntry entry, final BrokerMapping mapping) {
+            this.entry = entry;
+            this.mapping = mapping;
+        }
     }
 }
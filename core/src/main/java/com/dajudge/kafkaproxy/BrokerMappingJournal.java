@@ -0,0 +1,143 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy;
+
+import com.dajudge.kafkaproxy.config.BrokerConfigSource.BrokerMapEntry;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static com.dajudge.kafkaproxy.config.BrokerConfigSource.parseBrokerMapEntry;
+import static java.lang.Integer.parseUnsignedInt;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+class BrokerMappingJournal {
+    private static final Logger LOG = LoggerFactory.getLogger(BrokerMappingJournal.class);
+    private final Path file;
+    private final ExecutorService writer = newSingleThreadExecutor(new DefaultThreadFactory("broker-journal", true));
+
+    BrokerMappingJournal(final Path file) {
+        this.file = file;
+    }
+
+    List<BrokerMapEntry> load() {
+        final List<BrokerMapEntry> entries = new ArrayList<>();
+        if (!Files.isRegularFile(file)) {
+            return entries;
+        }
+        final String content;
+        try {
+            content = new String(Files.readAllBytes(file), UTF_8);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Failed to read broker journal " + file, e);
+        }
+        final String[] lines = content.split("\n", -1);
+        if (!lines[lines.length - 1].isEmpty()) {
+            LOG.warn("Ignoring incomplete broker journal entry: {}", lines[lines.length - 1]);
+        }
+        for (int i = 0; i < lines.length - 1; i++) {
+            final BrokerMapEntry entry = parse(lines[i]);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    private static BrokerMapEntry parse(final String line) {
+        if (line.trim().isEmpty()) {
+            return null;
+        }
+        final int separator = line.lastIndexOf(": ");
+        try {
+            if (separator >= 0) {
+                return parseBrokerMapEntry(
+                        line.substring(0, separator),
+                        parseUnsignedInt(line.substring(separator + 2).trim())
+                );
+            }
+        } catch (final IllegalArgumentException e) {
+            LOG.debug("Failed to parse broker journal entry", e);
+        }
+        LOG.warn("Ignoring malformed broker journal entry: {}", line);
+        return null;
+    }
+
+    void rewrite(final Collection<BrokerMapEntry> entries) {
+        final StringBuilder content = new StringBuilder();
+        entries.forEach(entry -> content.append(entry).append("\n"));
+        final Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            write(tmpFile, content.toString(), CREATE, WRITE, TRUNCATE_EXISTING);
+            Files.move(tmpFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Failed to write broker journal " + file, e);
+        }
+    }
+
+    void append(final BrokerMapEntry entry) {
+        writer.execute(() -> {
+            try {
+                write(file, entry + "\n", CREATE, WRITE, APPEND);
+            } catch (final IOException e) {
+                LOG.error("Failed to journal broker mapping {}", entry, e);
+            }
+        });
+    }
+
+    void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, SECONDS)) {
+                LOG.warn("Timed out writing pending broker journal entries to {}", file);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void write(final Path target, final String content, final OpenOption... options)
+            throws IOException {
+        try (final FileChannel channel = FileChannel.open(target, options)) {
+            final ByteBuffer buffer = ByteBuffer.wrap(content.getBytes(UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy;
+
+import com.dajudge.proxybase.config.Endpoint;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Arrays.binarySearch;
+import static java.util.Arrays.copyOf;
+import static java.util.Collections.unmodifiableList;
+
+public final class BrokerMappingTable {
+    public static final BrokerMappingTable EMPTY = new BrokerMappingTable(new int[0], new BrokerMapping[0]);
+
+    private final int[] nodeIds;
+    private final BrokerMapping[] mappings;
+
+    private BrokerMappingTable(final int[] nodeIds, final BrokerMapping[] mappings) {
+        this.nodeIds = nodeIds;
+        this.mappings = mappings;
+    }
+
+    public BrokerMapping get(final int nodeId) {
+        final int index = binarySearch(nodeIds, nodeId);
+        return index < 0 ? null : mappings[index];
+    }
+
+    public List<BrokerMapping> values() {
+        return unmodifiableList(asList(mappings));
+    }
+
+    public BrokerMappingTable with(final int nodeId, final BrokerMapping mapping) {
+        final int index = binarySearch(nodeIds, nodeId);
+        if (index >= 0) {
+            final BrokerMapping[] updated = copyOf(mappings, mappings.length);
+            updated[index] = mapping;
+            return new BrokerMappingTable(nodeIds, updated);
+        }
+        final int insertAt = -index - 1;
+        final int[] extendedNodeIds = new int[nodeIds.length + 1];
+        final BrokerMapping[] extendedMappings = new BrokerMapping[mappings.length + 1];
+        System.arraycopy(nodeIds, 0, extendedNodeIds, 0, insertAt);
+        System.arraycopy(mappings, 0, extendedMappings, 0, insertAt);
+        extendedNodeIds[insertAt] = nodeId;
+        extendedMappings[insertAt] = mapping;
+        System.arraycopy(nodeIds, insertAt, extendedNodeIds, insertAt + 1, nodeIds.length - insertAt);
+        System.arraycopy(mappings, insertAt, extendedMappings, insertAt + 1, mappings.length - insertAt);
+        return new BrokerMappingTable(extendedNodeIds, extendedMappings);
+    }
+
+    public BrokerMappingTable withoutProxy(final Endpoint proxy) {
+        final int[] remainingNodeIds = new int[nodeIds.length];
+        final BrokerMapping[] remainingMappings = new BrokerMapping[mappings.length];
+        int remaining = 0;
+        for (int i = 0; i < nodeIds.length; i++) {
+            if (!mappings[i].getProxy().equals(proxy)) {
+                remainingNodeIds[remaining] = nodeIds[i];
+                remainingMappings[remaining] = mappings[i];
+                remaining++;
+            }
+        }
+        if (remaining == nodeIds.length) {
+            return this;
+        }
+        return new BrokerMappingTable(copyOf(remainingNodeIds, remaining), copyOf(remainingMappings, remaining));
+    }
+}
@@ -21,14 +21,28 @@ import com.dajudge.kafkaproxy.config.ApplicationConfig;
 import com.dajudge.kafkaproxy.config.BrokerConfigSource;
 import com.dajudge.kafkaproxy.config.Environment;
 import com.dajudge.kafkaproxy.config.KafkaBrokerConfigSource.KafkaBrokerConfig;
+import com.dajudge.kafkaproxy.config.ListenerReaperConfigSource.ListenerReaperConfig;
+import com.dajudge.kafkaproxy.config.MultiplexingConfigSource.MultiplexingConfig;
 import com.dajudge.proxybase.ProxyApplication;
-import com.dajudge.proxybase.ProxyChannel;
+import com.dajudge.proxybase.ProxyListener;
 import com.dajudge.proxybase.ProxyChannelFactory;
+import com.dajudge.proxybase.config.ConnectConfig;
+import com.dajudge.proxybase.config.ConnectionPoolConfig;
+import com.dajudge.proxybase.config.CryptoExecutorConfig;
+import com.dajudge.proxybase.config.DnsConfig;
+import com.dajudge.proxybase.config.Endpoint;
+import com.dajudge.proxybase.config.ReadBudgetConfig;
+import com.dajudge.proxybase.config.SniConfig;
 import com.dajudge.proxybase.config.UpstreamConfig;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import static com.dajudge.kafkaproxy.ca.CertificateAuthorityFactory.createCertificateAuthority;
 
@@ -36,14 +50,28 @@ public class KafkaProxyApplication extends ProxyApplication {
     private static final Logger LOG = LoggerFactory.getLogger(KafkaProxyApplication.class);
 
     private final BrokerMapper brokerMappingStrategy;
+    private final BrokerConfigSource.BrokerConfig brokerConfig;
+    private final MultiplexingConfig multiplexingConfig;
+    private final ListenerReaperConfig listenerReaperConfig;
+    private ScheduledExecutorService listenerReaper;
+    private KafkaProxyChannelManager proxyChannelManager;
 
     private KafkaProxyApplication(final ApplicationConfig appConfig) {
         super(
                 appConfig.get(UpstreamConfig.class),
                 appConfig.get(KafkaBrokerConfig.class).getDownstreamConfig(),
-                createCertificateAuthority(appConfig)
+                createCertificateAuthority(appConfig),
+                appConfig.get(ReadBudgetConfig.class),
+                appConfig.get(ConnectConfig.class),
+                appConfig.get(DnsConfig.class),
+                appConfig.get(ConnectionPoolConfig.class),
+                appConfig.get(SniConfig.class),
+                appConfig.get(CryptoExecutorConfig.class)
         );
-        brokerMappingStrategy = new BrokerMapper(appConfig.get(BrokerConfigSource.BrokerConfig.class));
+        brokerConfig = appConfig.get(BrokerConfigSource.BrokerConfig.class);
+        brokerMappingStrategy = new BrokerMapper(brokerConfig, appConfig.get(SniConfig.class));
+        multiplexingConfig = appConfig.get(MultiplexingConfig.class);
+        listenerReaperConfig = appConfig.get(ListenerReaperConfig.class);
     }
 
     public static ProxyApplication create(final Environment environment) {
@@ -51,14 +79,57 @@ public class KafkaProxyApplication extends ProxyApplication {
     }
 
     @Override
-    protected Collection<ProxyChannel> initializeProxyChannels(final ProxyChannelFactory proxyChannelFactory) {
+    protected Collection<ProxyListener> initializeProxyChannels(final ProxyChannelFactory proxyChannelFactory) {
         final KafkaProxyChannelFactory kafkaProxyChannelFactory = new KafkaProxyChannelFactory(
+                proxyChannelFactory,
+                multiplexingConfig
+        );
+        proxyChannelManager = new KafkaProxyChannelManager(
                 brokerMappingStrategy,
-                proxyChannelFactory
+                kafkaProxyChannelFactory
         );
-        final KafkaProxyChannelManager proxyChannelManager = new KafkaProxyChannelManager(kafkaProxyChannelFactory);
-        kafkaProxyChannelFactory.bootstrap(proxyChannelManager)
+        proxyChannelManager.prebind()
+                .forEach(knownMapping -> LOG.info("Known broker mapping: {}", knownMapping));
+        proxyChannelManager.proxies().forEach(channel -> channel.start().syncUninterruptibly());
+        proxyChannelManager.bootstrap()
                 .forEach(bootstrapMapping -> LOG.info("Bootstrap broker mapping: {}", bootstrapMapping));
-        return proxyChannelManager.proxies();
+        if (brokerConfig.getBootstrapPort() > 0) {
+            final Endpoint balancedBootstrap = new Endpoint(
+                    brokerConfig.getProxyHostname(),
+                    brokerConfig.getBootstrapPort()
+            );
+            proxyChannelManager.balanceBootstrap(balancedBootstrap);
+            LOG.info("Balanced bootstrap listener: {}", balancedBootstrap);
+        }
+        proxyChannelManager.listeners().forEach(listener -> listener.start().syncUninterruptibly());
+        if (listenerReaperConfig.isEnabled()) {
+            startListenerReaper(proxyChannelManager);
+        }
+        return proxyChannelManager.listeners();
+    }
+
+    private void startListenerReaper(final KafkaProxyChannelManager proxyChannelManager) {
+        final long gracePeriodNanos = MILLISECONDS.toNanos(listenerReaperConfig.getGracePeriodMs());
+        final long interval = listenerReaperConfig.getCheckIntervalMs();
+        listenerReaper = newSingleThreadScheduledExecutor(new DefaultThreadFactory("listener-reaper", true));
+        listenerReaper.scheduleWithFixedDelay(() -> {
+            try {
+                proxyChannelManager.reap(System.nanoTime(), gracePeriodNanos);
+            } catch (final RuntimeException e) {
+                LOG.error("Failed to reap proxy channels", e);
+            }
+        }, interval, interval, MILLISECONDS);
+    }
+
+    @Override
+    public void shutdown() {
+        if (listenerReaper != null) {
+            listenerReaper.shutdownNow();
+        }
+        super.shutdown();
+        if (proxyChannelManager != null) {
+            proxyChannelManager.close();
+        }
+        brokerMappingStrategy.close();
     }
 }
@@ -17,60 +17,67 @@
 
 package com.dajudge.kafkaproxy;
 
-import com.dajudge.kafkaproxy.protocol.KafkaMessageSplitter;
-import com.dajudge.kafkaproxy.protocol.KafkaRequestProcessor;
-import com.dajudge.kafkaproxy.protocol.KafkaRequestStore;
-import com.dajudge.kafkaproxy.protocol.KafkaResponseProcessor;
+import com.dajudge.kafkaproxy.config.MultiplexingConfigSource.MultiplexingConfig;
+import com.dajudge.kafkaproxy.protocol.KafkaDownstreamSinkFactory;
+import com.dajudge.kafkaproxy.protocol.KafkaMultiplexer;
 import com.dajudge.kafkaproxy.protocol.rewrite.CompositeRewriter;
 import com.dajudge.kafkaproxy.protocol.rewrite.FindCoordinatorRewriter;
 import com.dajudge.kafkaproxy.protocol.rewrite.MetadataRewriter;
 import com.dajudge.kafkaproxy.protocol.rewrite.ResponseRewriter;
-import com.dajudge.proxybase.FilterFactory;
+import com.dajudge.proxybase.DownstreamSinkFactory;
 import com.dajudge.proxybase.ProxyChannel;
 import com.dajudge.proxybase.ProxyChannelFactory;
+import com.dajudge.proxybase.ProxyListener;
 import com.dajudge.proxybase.config.Endpoint;
-import io.netty.buffer.ByteBuf;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.List;
+import java.util.Collection;
+import java.util.function.Supplier;
 
 import static java.util.Arrays.asList;
-import static java.util.stream.Collectors.toList;
 
 public class KafkaProxyChannelFactory {
-    private final BrokerMapper brokerMapper;
+    private static final Logger LOG = LoggerFactory.getLogger(KafkaProxyChannelFactory.class);
     private final ProxyChannelFactory proxyChannelFactory;
+    private final MultiplexingConfig multiplexingConfig;
 
     public KafkaProxyChannelFactory(
-            final BrokerMapper brokerMapper,
-            final ProxyChannelFactory proxyChannelFactory
+            final ProxyChannelFactory proxyChannelFactory,
+            final MultiplexingConfig multiplexingConfig
     ) {
-        this.brokerMapper = brokerMapper;
         this.proxyChannelFactory = proxyChannelFactory;
+        if (multiplexingConfig.isEnabled() && !proxyChannelFactory.hasStaticClientIdentity()) {
+            LOG.warn("Multiplexing broker connections requires a static client certificate, disabling it.");
+            this.multiplexingConfig = MultiplexingConfig.DISABLED;
+        } else {
+            this.multiplexingConfig = multiplexingConfig;
+        }
     }
 
-    public ProxyChannel create(final KafkaProxyChannelManager manager, final Endpoint endpoint) {
-        final BrokerMapping brokerToProxy = brokerMapper.getBrokerMapping(endpoint);
-        if (brokerToProxy == null) {
-            throw new IllegalArgumentException("No proxy configuration provided for " + endpoint);
-        }
+    public ProxyChannel create(final KafkaProxyChannelManager manager, final BrokerMapping brokerToProxy) {
         final ResponseRewriter rewriter = new CompositeRewriter(asList(
                 new MetadataRewriter(manager),
                 new FindCoordinatorRewriter(manager)
         ));
-        final KafkaRequestStore requestStore = new KafkaRequestStore(rewriter);
-        final FilterFactory<ByteBuf> upstreamFilterFactory = upstream ->
-                new KafkaMessageSplitter(new KafkaResponseProcessor(upstream, requestStore));
-        final FilterFactory<ByteBuf> downstreamFilterFactory = downstream ->
-                new KafkaMessageSplitter(new KafkaRequestProcessor(downstream, requestStore));
         return proxyChannelFactory.createProxyChannel(
-                brokerToProxy.getProxy(), brokerToProxy.getBroker(), upstreamFilterFactory,
-                downstreamFilterFactory
+                brokerToProxy.getProxy(),
+                brokerToProxy.getBroker(),
+                brokerConnectionFactory -> createDownstreamSinkFactory(brokerConnectionFactory, rewriter)
         );
     }
 
-    public List<BrokerMapping> bootstrap(final KafkaProxyChannelManager manager) {
-        return brokerMapper.getBootstrapBrokers().stream()
-                .map(manager::getByBrokerEndpoint)
-                .collect(toList());
+    public ProxyListener createBalancing(final Endpoint proxy, final Supplier<Collection<ProxyChannel>> targets) {
+        return proxyChannelFactory.createBalancingProxyChannel(proxy, targets);
+    }
+
+    private DownstreamSinkFactory createDownstreamSinkFactory(
+            final DownstreamSinkFactory brokerConnectionFactory,
+            final ResponseRewriter rewriter
+    ) {
+        if (multiplexingConfig.isEnabled()) {
+            return new KafkaMultiplexer(brokerConnectionFactory, rewriter, multiplexingConfig.getBrokerConnections());
+        }
+        return new KafkaDownstreamSinkFactory(brokerConnectionFactory, rewriter);
     }
 }
@@ -17,37 +17,205 @@
 
 package com.dajudge.kafkaproxy;
 
+import com.dajudge.kafkaproxy.config.BrokerConfigSource.BrokerMapEntry;
 import com.dajudge.proxybase.config.Endpoint;
 import com.dajudge.proxybase.ProxyChannel;
+import com.dajudge.proxybase.ProxyListener;
+import com.dajudge.proxybase.metrics.Counter;
+import com.dajudge.proxybase.metrics.Gauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static com.dajudge.proxybase.metrics.Metrics.counter;
+import static com.dajudge.proxybase.metrics.Metrics.gauge;
+import static java.util.stream.Collectors.toList;
 
 public class KafkaProxyChannelManager {
-    private final Map<String, ProxyChannel> channels = new HashMap<>();
+    private static final Logger LOG = LoggerFactory.getLogger(KafkaProxyChannelManager.class);
+    private final ConcurrentMap<Endpoint, ProxyChannel> channels = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Endpoint, ProxyListener> listeners = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Endpoint, AtomicLong> lastSeenNanos = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Endpoint, BrokerMapping> endpointMappings = new ConcurrentHashMap<>();
+    private final Set<Endpoint> bootstrapProxies = ConcurrentHashMap.newKeySet();
+    private final Counter reaped = counter("listeners_reaped");
+    private final Gauge listenersGauge = gauge("listeners");
+    private final LongSupplier listenerCount = listeners::size;
+    private final BrokerMapper brokerMapper;
     private final KafkaProxyChannelFactory channelFactory;
+    private volatile BrokerMappingTable mappings = BrokerMappingTable.EMPTY;
 
     public KafkaProxyChannelManager(
+            final BrokerMapper brokerMapper,
             final KafkaProxyChannelFactory channelFactory
     ) {
+        this.brokerMapper = brokerMapper;
         this.channelFactory = channelFactory;
+        listenersGauge.add(listenerCount);
+    }
+
+    public void close() {
+        listenersGauge.remove(listenerCount);
     }
 
-    public synchronized Collection<ProxyChannel> proxies() {
+    public Collection<ProxyChannel> proxies() {
         return channels.values();
     }
 
-    public synchronized BrokerMapping getByBrokerEndpoint(final Endpoint brokerEndpoint) {
-        final ProxyChannel channel = channels.computeIfAbsent(keyOf(brokerEndpoint), k ->
-                channelFactory.create(this, brokerEndpoint)
-        );
-        channel.start();
-        return new BrokerMapping(brokerEndpoint, new Endpoint(channel.getHost(), channel.getPort()));
+    public Collection<ProxyListener> listeners() {
+        return listeners.values();
+    }
+
+    public BrokerMapping getByBroker(final int nodeId, final String brokerHost, final int brokerPort) {
+        final BrokerMapping mapping = mappings.get(nodeId);
+        if (mapping != null
+                && mapping.getBroker().getPort() == brokerPort
+                && mapping.getBroker().getHost().equals(brokerHost)) {
+            markSeen(mapping);
+            return mapping;
+        }
+        return updateNode(nodeId, new Endpoint(brokerHost, brokerPort));
+    }
+
+    public BrokerMapping getByBrokerEndpoint(final Endpoint brokerEndpoint) {
+        final BrokerMapping mapping = endpointMappings.get(brokerEndpoint);
+        if (mapping != null && isForwarding(mapping)) {
+            return mapping;
+        }
+        return updateEndpoint(brokerEndpoint);
+    }
+
+    public List<BrokerMapping> prebind() {
+        return brokerMapper.getKnownBrokers().stream()
+                .map(this::getByKnownBroker)
+                .collect(toList());
+    }
+
+    public List<BrokerMapping> bootstrap() {
+        final List<BrokerMapping> bootstrapMappings = brokerMapper.getBootstrapBrokers().stream()
+                .map(this::getByBrokerEndpoint)
+                .collect(toList());
+        bootstrapMappings.forEach(mapping -> bootstrapProxies.add(mapping.getProxy()));
+        return bootstrapMappings;
+    }
+
+    public synchronized List<BrokerMapping> reap(final long nowNanos, final long gracePeriodNanos) {
+        final List<BrokerMapping> reapedMappings = new ArrayList<>();
+        for (final Map.Entry<Endpoint, ProxyChannel> entry : channels.entrySet()) {
+            final Endpoint proxy = entry.getKey();
+            final ProxyChannel channel = entry.getValue();
+            if (bootstrapProxies.contains(proxy)
+                    || channel.getActiveConnections() > 0
+                    || nowNanos - lastSeenNanos.get(proxy).get() < gracePeriodNanos
+                    || nowNanos - channel.getLastActiveNanos() < gracePeriodNanos) {
+                continue;
+            }
+            final BrokerMapping mapping = new BrokerMapping(channel.getDownstreamEndpoint(), proxy);
+            LOG.info("Closing proxy channel of departed broker {}", mapping);
+            channels.remove(proxy);
+            listeners.remove(proxy);
+            lastSeenNanos.remove(proxy);
+            mappings = mappings.withoutProxy(proxy);
+            endpointMappings.values().removeIf(known -> known.getProxy().equals(proxy));
+            brokerMapper.release(mapping);
+            channel.close();
+            reaped.increment();
+            reapedMappings.add(mapping);
+        }
+        return reapedMappings;
+    }
+
+    private BrokerMapping getByKnownBroker(final BrokerMapEntry entry) {
+        return entry.hasNodeId()
+                ? updateNode(entry.getNodeId(), entry.getBroker())
+                : getByBrokerEndpoint(entry.getBroker());
+    }
+
+    private synchronized BrokerMapping updateEndpoint(final Endpoint brokerEndpoint) {
+        final BrokerMapping mapping = brokerMapper.getBrokerMapping(brokerEndpoint);
+        ensureChannel(mapping);
+        endpointMappings.put(brokerEndpoint, mapping);
+        return mapping;
+    }
+
+    private boolean isForwarding(final BrokerMapping mapping) {
+        final ProxyChannel channel = channels.get(mapping.getProxy());
+        return channel != null && channel.getDownstreamEndpoint().equals(mapping.getBroker());
+    }
+
+    private synchronized BrokerMapping updateNode(final int nodeId, final Endpoint brokerEndpoint) {
+        final BrokerMapping mapping = brokerMapper.getBrokerMapping(nodeId, brokerEndpoint);
+        ensureChannel(mapping);
+        mappings = mappings.with(nodeId, mapping);
+        markSeen(mapping);
+        return mapping;
     }
 
-    private String keyOf(final Endpoint brokerEndpoint) {
-        return brokerEndpoint.getHost() + ":" + brokerEndpoint.getPort();
+    public synchronized ProxyListener balanceBootstrap(final Endpoint proxy) {
+        final ProxyListener listener = channelFactory.createBalancing(proxy, this::balancingTargets);
+        listeners.put(proxy, listener);
+        listener.start();
+        return listener;
     }
 
+    private Collection<ProxyChannel> balancingTargets() {
+        final List<ProxyChannel> brokers = mappings.values().stream()
+                .map(mapping -> channels.get(mapping.getProxy()))
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(toList());
+        if (!brokers.isEmpty()) {
+            return brokers;
+        }
+        return bootstrapProxies.stream()
+                .map(channels::get)
+                .filter(Objects::nonNull)
+                .collect(toList());
+    }
+
+    private synchronized void forget(final BrokerMapping mapping, final ProxyChannel channel) {
+        if (!channels.remove(mapping.getProxy(), channel)) {
+            return;
+        }
+        listeners.remove(mapping.getProxy(), channel);
+        LOG.warn("Dropping broker mapping {}, its proxy channel could not be bound", mapping);
+        lastSeenNanos.remove(mapping.getProxy());
+        mappings = mappings.withoutProxy(mapping.getProxy());
+        endpointMappings.values().removeIf(known -> known.getProxy().equals(mapping.getProxy()));
+        channel.close();
+    }
+
+    private void markSeen(final BrokerMapping mapping) {
+        final AtomicLong seen = lastSeenNanos.get(mapping.getProxy());
+        if (seen != null) {
+            seen.lazySet(System.nanoTime());
+        }
+    }
+
+    private void ensureChannel(final BrokerMapping mapping) {
+        final ProxyChannel existing = channels.get(mapping.getProxy());
+        if (existing == null) {
+            final ProxyChannel channel = channelFactory.create(this, mapping);
+            lastSeenNanos.put(mapping.getProxy(), new AtomicLong(System.nanoTime()));
+            channels.put(mapping.getProxy(), channel);
+            listeners.put(mapping.getProxy(), channel);
+            channel.start().addListener(future -> {
+                if (!future.isSuccess()) {
+                    forget(mapping, channel);
+                }
+            });
+        } else if (!existing.getDownstreamEndpoint().equals(mapping.getBroker())) {
+            existing.setDownstreamEndpoint(mapping.getBroker());
+        }
+    }
 }
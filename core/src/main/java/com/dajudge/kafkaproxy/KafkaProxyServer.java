@@ -0,0 +1,191 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy;
+
+import com.dajudge.kafkaproxy.config.ApplicationConfig;
+import com.dajudge.kafkaproxy.config.BrokerConfigSource;
+import com.dajudge.kafkaproxy.config.BrokerConfigSource.BrokerConfig;
+import com.dajudge.kafkaproxy.config.ClusterEnvironment;
+import com.dajudge.kafkaproxy.config.Environment;
+import com.dajudge.kafkaproxy.config.SniConfigSource;
+import com.dajudge.proxybase.ProxyApplication;
+import com.dajudge.proxybase.ProxyEventLoops;
+import com.dajudge.proxybase.config.DnsConfig;
+import com.dajudge.proxybase.config.ReadBudgetConfig;
+import com.dajudge.proxybase.config.SniConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static com.dajudge.kafkaproxy.config.BrokerConfigSource.ENV_BASE_PORT;
+import static com.dajudge.kafkaproxy.config.BrokerConfigSource.ENV_BOOTSTRAP_PORT;
+import static com.dajudge.kafkaproxy.config.BrokerConfigSource.ENV_BROKER_JOURNAL_FILE;
+import static com.dajudge.kafkaproxy.config.BrokerConfigSource.ENV_BROKER_MAP_FILE;
+import static com.dajudge.kafkaproxy.config.ConfigSource.PREFIX;
+import static com.dajudge.kafkaproxy.config.SniConfigSource.PROP_SNI_PORT;
+import static java.lang.String.format;
+
+public class KafkaProxyServer {
+    private static final Logger LOG = LoggerFactory.getLogger(KafkaProxyServer.class);
+    private static final String ENV_CLUSTERS = PREFIX + "CLUSTERS";
+    private static final String DEFAULT_CLUSTER = "default";
+
+    private final ApplicationConfig appConfig;
+    private final Map<String, ProxyApplication> clusters;
+    private ProxyEventLoops eventLoops;
+
+    private KafkaProxyServer(final ApplicationConfig appConfig, final Map<String, ProxyApplication> clusters) {
+        this.appConfig = appConfig;
+        this.clusters = clusters;
+    }
+
+    public static KafkaProxyServer create(final Environment environment) {
+        final Map<String, ProxyApplication> clusters = new LinkedHashMap<>();
+        final String clusterNames = environment.optionalString(ENV_CLUSTERS).orElse("");
+        if (clusterNames.trim().isEmpty()) {
+            clusters.put(DEFAULT_CLUSTER, KafkaProxyApplication.create(environment));
+        } else {
+            final Map<String, Environment> clusterEnvironments = new LinkedHashMap<>();
+            Stream.of(clusterNames.split(","))
+                    .map(String::trim)
+                    .filter(name -> !name.isEmpty())
+                    .forEach(name -> {
+                        if (clusterEnvironments.containsKey(name)) {
+                            throw new IllegalArgumentException("Cluster " + name + " is configured more than once");
+                        }
+                        clusterEnvironments.put(name, new ClusterEnvironment(environment, name));
+                    });
+            Stream.of(ENV_BROKER_MAP_FILE, ENV_BROKER_JOURNAL_FILE)
+                    .forEach(variable -> requireDistinctFiles(clusterEnvironments, variable));
+            requireDisjointPorts(clusterEnvironments);
+            clusterEnvironments.forEach((name, clusterEnvironment) ->
+                    clusters.put(name, KafkaProxyApplication.create(clusterEnvironment)));
+        }
+        return new KafkaProxyServer(new ApplicationConfig(environment), clusters);
+    }
+
+    private static void requireDistinctFiles(
+            final Map<String, Environment> clusterEnvironments,
+            final String variable
+    ) {
+        final Map<Path, String> owners = new HashMap<>();
+        clusterEnvironments.forEach((name, clusterEnvironment) -> clusterEnvironment.optionalString(variable)
+                .ifPresent(value -> {
+                    final String owner = owners.putIfAbsent(Paths.get(value).toAbsolutePath().normalize(), name);
+                    if (owner != null) {
+                        throw new IllegalArgumentException(format(
+                                "Clusters %s and %s must not share the same %s: %s", owner, name, variable, value
+                        ));
+                    }
+                }));
+    }
+
+    private static void requireDisjointPorts(final Map<String, Environment> clusterEnvironments) {
+        final List<PortClaim> claims = new ArrayList<>();
+        clusterEnvironments.forEach((name, clusterEnvironment) -> {
+            final List<PortClaim> clusterClaims = portClaims(name, clusterEnvironment);
+            claims.forEach(claim -> clusterClaims.forEach(clusterClaim -> {
+                if (claim.overlaps(clusterClaim)) {
+                    throw new IllegalArgumentException(format(
+                            "Clusters %s and %s must not share ports: %s overlaps with %s",
+                            claim.cluster, clusterClaim.cluster, claim, clusterClaim
+                    ));
+                }
+            }));
+            claims.addAll(clusterClaims);
+        });
+    }
+
+    // Brokers are assigned ports from the base port onwards, either sequentially or by node ID within the port range
+    // followed by the bootstrap servers. With SNI all brokers share the SNI port instead.
+    private static List<PortClaim> portClaims(final String cluster, final Environment environment) {
+        final BrokerConfig brokerConfig = new BrokerConfigSource().parse(environment);
+        final SniConfig sniConfig = new SniConfigSource().parse(environment);
+        final List<PortClaim> claims = new ArrayList<>();
+        if (sniConfig.isEnabled()) {
+            claims.add(new PortClaim(cluster, PROP_SNI_PORT, sniConfig.getPort(), 1));
+        } else {
+            final int brokerPorts = brokerConfig.getPortAssignment().isDeterministic()
+                    ? brokerConfig.getPortRange() + brokerConfig.getBootstrapBrokers().size()
+                    : brokerConfig.getPortRange();
+            claims.add(new PortClaim(cluster, ENV_BASE_PORT, brokerConfig.getProxyBasePort(), brokerPorts));
+            brokerConfig.getBrokerMap().forEach(entry ->
+                    claims.add(new PortClaim(cluster, ENV_BROKER_MAP_FILE, entry.getProxyPort(), 1)));
+        }
+        if (brokerConfig.getBootstrapPort() > 0) {
+            claims.add(new PortClaim(cluster, ENV_BOOTSTRAP_PORT, brokerConfig.getBootstrapPort(), 1));
+        }
+        return claims;
+    }
+
+    public KafkaProxyServer start() {
+        eventLoops = new ProxyEventLoops(appConfig.get(ReadBudgetConfig.class), appConfig.get(DnsConfig.class));
+        clusters.forEach((name, cluster) -> {
+            LOG.info("Starting cluster {}", name);
+            cluster.start(eventLoops);
+        });
+        return this;
+    }
+
+    public void shutdown() {
+        if (eventLoops == null) {
+            throw new IllegalStateException("must invoke start() first");
+        }
+        clusters.forEach((name, cluster) -> {
+            try {
+                cluster.shutdown();
+            } catch (final RuntimeException e) {
+                LOG.error("Failed to shut down cluster {}", name, e);
+            }
+        });
+        eventLoops.shutdown();
+    }
+
+    private static final class PortClaim {
+        private final String cluster;
+        private final String variable;
+        private final int firstPort;
+        private final int ports;
+
+        private PortClaim(final String cluster, final String variable, final int firstPort, final int ports) {
+            this.cluster = cluster;
+            this.variable = variable;
+            this.firstPort = firstPort;
+            this.ports = ports;
+        }
+
+        private boolean overlaps(final PortClaim other) {
+            return firstPort < other.firstPort + other.ports && other.firstPort < firstPort + ports;
+        }
+
+        @Override
+        public String toString() {
+            return ports == 1
+                    ? format("%s %d", variable, firstPort)
+                    : format("%s %d-%d", variable, firstPort, firstPort + ports - 1);
+        }
+    }
+}
@@ -18,14 +18,28 @@
 package com.dajudge.kafkaproxy.config;
 
 import com.dajudge.proxybase.config.Endpoint;
+import org.yaml.snakeyaml.Yaml;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Stream;
 
 import static java.lang.Integer.parseUnsignedInt;
+import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.toList;
 
 public class BrokerConfigSource implements ConfigSource<BrokerConfigSource.BrokerConfig> {
+    public static final String ENV_BASE_PORT = "KAFKAPROXY_BASE_PORT";
+    public static final String ENV_BROKER_MAP_FILE = "KAFKAPROXY_BROKER_MAP_FILE";
+    public static final String ENV_BROKER_JOURNAL_FILE = "KAFKAPROXY_BROKER_JOURNAL_FILE";
+    private static final String ENV_BROKER_PORT_ASSIGNMENT = "KAFKAPROXY_BROKER_PORT_ASSIGNMENT";
+    private static final String ENV_BROKER_PORT_RANGE = "KAFKAPROXY_BROKER_PORT_RANGE";
+    public static final String ENV_BOOTSTRAP_PORT = "KAFKAPROXY_BOOTSTRAP_PORT";
 
     @Override
     public Class<BrokerConfig> getConfigClass() {
@@ -37,34 +51,106 @@ public class BrokerConfigSource implements ConfigSource<BrokerConfigSource.Broke
         return new BrokerConfig(
                 getBootstrapBrokers(environment),
                 environment.requiredString("KAFKAPROXY_HOSTNAME"),
-                environment.requiredInt("KAFKAPROXY_BASE_PORT")
+                environment.requiredInt(ENV_BASE_PORT),
+                environment.optionalFile(ENV_BROKER_MAP_FILE)
+                        .map(BrokerConfigSource::parseBrokerMap)
+                        .orElse(emptyList()),
+                environment.optionalString(ENV_BROKER_JOURNAL_FILE).orElse(null),
+                PortAssignment.valueOf(environment.requiredString(ENV_BROKER_PORT_ASSIGNMENT, "SEQUENTIAL")),
+                environment.requiredInt(ENV_BROKER_PORT_RANGE, 1000),
+                environment.requiredInt(ENV_BOOTSTRAP_PORT, 0)
         );
     }
 
     private List<Endpoint> getBootstrapBrokers(final Environment environment) {
         final String bootstrapServers = environment.requiredString("KAFKAPROXY_BOOTSTRAP_SERVERS");
         return Stream.of(bootstrapServers.split(","))
-                .map(bootstrapServer -> {
-                    final String[] bootstrapServerParts = bootstrapServer.split(":");
-                    return new Endpoint(bootstrapServerParts[0], parseUnsignedInt(bootstrapServerParts[1]));
-                })
+                .map(BrokerConfigSource::parseEndpoint)
                 .collect(toList());
 
     }
 
+    public static List<BrokerMapEntry> parseBrokerMap(final FileResource file) {
+        final Map<?, ?> yaml;
+        try (final InputStream is = file.get()) {
+            yaml = new Yaml().load(is);
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Failed to read broker map", e);
+        }
+        final List<BrokerMapEntry> brokerMap = new ArrayList<>();
+        if (yaml == null) {
+            return brokerMap;
+        }
+        final Set<Integer> proxyPorts = new HashSet<>();
+        final Set<Endpoint> brokers = new HashSet<>();
+        final Set<Integer> nodeIds = new HashSet<>();
+        yaml.forEach((broker, proxyPort) -> {
+            if (!(proxyPort instanceof Integer)) {
+                throw new IllegalArgumentException("Invalid proxy port for broker " + broker + ": " + proxyPort);
+            }
+            final BrokerMapEntry entry = parseBrokerMapEntry(String.valueOf(broker), (Integer) proxyPort);
+            if (!proxyPorts.add(entry.getProxyPort())) {
+                throw new IllegalArgumentException("Proxy port " + proxyPort + " is mapped more than once");
+            }
+            if (!brokers.add(entry.getBroker()) || (entry.hasNodeId() && !nodeIds.add(entry.getNodeId()))) {
+                throw new IllegalArgumentException("Broker " + broker + " is mapped more than once");
+            }
+            brokerMap.add(entry);
+        });
+        return brokerMap;
+    }
+
+    public static BrokerMapEntry parseBrokerMapEntry(final String broker, final int proxyPort) {
+        final int separator = broker.indexOf('@');
+        if (separator < 0) {
+            return new BrokerMapEntry(BrokerMapEntry.NO_NODE_ID, parseEndpoint(broker), proxyPort);
+        }
+        return new BrokerMapEntry(
+                parseUnsignedInt(broker.substring(0, separator)),
+                parseEndpoint(broker.substring(separator + 1)),
+                proxyPort
+        );
+    }
+
+    private static Endpoint parseEndpoint(final String endpoint) {
+        final String[] endpointParts = endpoint.split(":");
+        if (endpointParts.length != 2) {
+            throw new IllegalArgumentException("Invalid endpoint, expected host:port: " + endpoint);
+        }
+        return new Endpoint(endpointParts[0], parseUnsignedInt(endpointParts[1]));
+    }
+
     public static class BrokerConfig {
         private final List<Endpoint> bootstrapBrokers;
         private final String proxyHostname;
         private final int proxyBasePort;
+        private final List<BrokerMapEntry> brokerMap;
+        private final String brokerJournalFile;
+        private final PortAssignment portAssignment;
+        private final int portRange;
+        private final int bootstrapPort;
 
         public BrokerConfig(
                 final List<Endpoint> bootstrapBrokers,
                 final String proxyHostname,
-                final int proxyBasePort
+                final int proxyBasePort,
+                final List<BrokerMapEntry> brokerMap,
+                final String brokerJournalFile,
+                final PortAssignment portAssignment,
+                final int portRange,
+                final int bootstrapPort
         ) {
+            if (portAssignment.isDeterministic() && portRange <= 0) {
+                throw new IllegalArgumentException("Port range must be positive: " + portRange);
+            }
             this.bootstrapBrokers = bootstrapBrokers;
             this.proxyHostname = proxyHostname;
             this.proxyBasePort = proxyBasePort;
+            this.brokerMap = brokerMap;
+            this.brokerJournalFile = brokerJournalFile;
+            this.portAssignment = portAssignment;
+            this.portRange = portRange;
+            this.bootstrapPort = bootstrapPort;
         }
 
         public List<Endpoint> getBootstrapBrokers() {
@@ -78,5 +164,70 @@ public class BrokerConfigSource implements ConfigSource<BrokerConfigSource.Broke
         public int getProxyBasePort() {
             return proxyBasePort;
         }
+
+        public List<BrokerMapEntry> getBrokerMap() {
+            return brokerMap;
+        }
+
+        public String getBrokerJournalFile() {
+            return brokerJournalFile;
+        }
+
+        public PortAssignment getPortAssignment() {
+            return portAssignment;
+        }
+
+        public int getPortRange() {
+            return portRange;
+        }
+
+        public int getBootstrapPort() {
+            return bootstrapPort;
+        }
+    }
+
+    public enum PortAssignment {
+        SEQUENTIAL,
+        NODE_ID,
+        HASH;
+
+        public boolean isDeterministic() {
+            return this != SEQUENTIAL;
+        }
+    }
+
+    public static class BrokerMapEntry {
+        public static final int NO_NODE_ID = -1;
+
+        private final int nodeId;
+        private final Endpoint broker;
+        private final int proxyPort;
+
+        public BrokerMapEntry(final int nodeId, final Endpoint broker, final int proxyPort) {
+            this.nodeId = nodeId;
+            this.broker = broker;
+            this.proxyPort = proxyPort;
+        }
+
+        public boolean hasNodeId() {
+            return nodeId != NO_NODE_ID;
+        }
+
+        public int getNodeId() {
+            return nodeId;
+        }
+
+        public Endpoint getBroker() {
+            return broker;
+        }
+
+        public int getProxyPort() {
+            return proxyPort;
+        }
+
+        @Override
+        public String toString() {
+            return (hasNodeId() ? nodeId + "@" : "") + broker + ": " + proxyPort;
+        }
     }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy.config;
+
+import java.util.Locale;
+import java.util.Optional;
+
+import static com.dajudge.kafkaproxy.config.ConfigSource.PREFIX;
+
+public class ClusterEnvironment implements Environment {
+    private final Environment environment;
+    private final String clusterPrefix;
+
+    public ClusterEnvironment(final Environment environment, final String cluster) {
+        this.environment = environment;
+        this.clusterPrefix = PREFIX + "CLUSTER_" + cluster.toUpperCase(Locale.ROOT).replaceAll("[^A-Z0-9]", "_") + "_";
+    }
+
+    private String resolve(final String variable) {
+        if (!variable.startsWith(PREFIX)) {
+            return variable;
+        }
+        final String clusterVariable = clusterPrefix + variable.substring(PREFIX.length());
+        return environment.optionalString(clusterVariable).isPresent() ? clusterVariable : variable;
+    }
+
+    @Override
+    public String requiredString(final String variable, final String defaultValue) {
+        return environment.requiredString(resolve(variable), defaultValue);
+    }
+
+    @Override
+    public String requiredString(final String variable) {
+        return environment.requiredString(resolve(variable));
+    }
+
+    @Override
+    public Optional<String> optionalString(final String variable) {
+        return environment.optionalString(resolve(variable));
+    }
+
+    @Override
+    public Optional<FileResource> optionalFile(final String variable) {
+        return environment.optionalFile(resolve(variable));
+    }
+
+    @Override
+    public boolean requiredBoolean(final String variable, final boolean defaultValue) {
+        return environment.requiredBoolean(resolve(variable), defaultValue);
+    }
+
+    @Override
+    public int requiredInt(final String variable) {
+        return environment.requiredInt(resolve(variable));
+    }
+
+    @Override
+    public int requiredInt(final String variable, final int defaultValue) {
+        return environment.requiredInt(resolve(variable), defaultValue);
+    }
+
+    @Override
+    public FileResource requiredFile(final String filename) {
+        return environment.requiredFile(filename);
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy.config;
+
+import com.dajudge.proxybase.config.ConnectConfig;
+
+public class ConnectConfigSource implements ConfigSource<ConnectConfig> {
+    private static final String PREFIX_CONNECT = PREFIX + "CONNECT_";
+    private static final String PROP_CONNECT_BUFFER_BYTES = PREFIX_CONNECT + "BUFFER_BYTES";
+    private static final String PROP_CONNECT_TIMEOUT_MS = PREFIX_CONNECT + "TIMEOUT_MS";
+    private static final String PROP_CONNECT_CIRCUIT_BREAKER_FAILURES = PREFIX_CONNECT + "CIRCUIT_BREAKER_FAILURES";
+    private static final String PROP_CONNECT_CIRCUIT_BREAKER_OPEN_MS = PREFIX_CONNECT + "CIRCUIT_BREAKER_OPEN_MS";
+
+    @Override
+    public Class<ConnectConfig> getConfigClass() {
+        return ConnectConfig.class;
+    }
+
+    @Override
+    public ConnectConfig parse(final Environment environment) {
+        final ConnectConfig defaults = ConnectConfig.DEFAULT;
+        return new ConnectConfig(
+                environment.requiredInt(PROP_CONNECT_BUFFER_BYTES, defaults.getPendingBytesLimit()),
+                environment.requiredInt(PROP_CONNECT_TIMEOUT_MS, defaults.getConnectTimeoutMillis()),
+                environment.requiredInt(PROP_CONNECT_CIRCUIT_BREAKER_FAILURES, defaults.getCircuitBreakerFailures()),
+                environment.requiredInt(PROP_CONNECT_CIRCUIT_BREAKER_OPEN_MS, defaults.getCircuitBreakerOpenMillis())
+        );
+    }
+}
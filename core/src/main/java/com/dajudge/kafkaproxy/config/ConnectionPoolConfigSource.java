@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy.config;
+
+import com.dajudge.proxybase.config.ConnectionPoolConfig;
+
+public class ConnectionPoolConfigSource implements ConfigSource<ConnectionPoolConfig> {
+    private static final String PREFIX_POOL = PREFIX + "CONNECTION_POOL_";
+    private static final String PROP_POOL_SIZE = PREFIX_POOL + "SIZE";
+    private static final String PROP_POOL_IDLE_TIMEOUT_MS = PREFIX_POOL + "IDLE_TIMEOUT_MS";
+    private static final String PROP_POOL_REFILL_RATE = PREFIX_POOL + "REFILL_RATE";
+
+    @Override
+    public Class<ConnectionPoolConfig> getConfigClass() {
+        return ConnectionPoolConfig.class;
+    }
+
+    @Override
+    public ConnectionPoolConfig parse(final Environment environment) {
+        final ConnectionPoolConfig defaults = ConnectionPoolConfig.DISABLED;
+        return new ConnectionPoolConfig(
+                environment.requiredInt(PROP_POOL_SIZE, defaults.getSize()),
+                environment.requiredInt(PROP_POOL_IDLE_TIMEOUT_MS, defaults.getIdleTimeoutMillis()),
+                environment.requiredInt(PROP_POOL_REFILL_RATE, defaults.getRefillRate())
+        );
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy.config;
+
+import com.dajudge.proxybase.config.CryptoExecutorConfig;
+
+public class CryptoExecutorConfigSource implements ConfigSource<CryptoExecutorConfig> {
+    private static final String PREFIX_CRYPTO = PREFIX + "CRYPTO_";
+    private static final String PROP_CRYPTO_THREADS = PREFIX_CRYPTO + "THREADS";
+    private static final String PROP_CRYPTO_QUEUE_SIZE = PREFIX_CRYPTO + "QUEUE_SIZE";
+
+    @Override
+    public Class<CryptoExecutorConfig> getConfigClass() {
+        return CryptoExecutorConfig.class;
+    }
+
+    @Override
+    public CryptoExecutorConfig parse(final Environment environment) {
+        final CryptoExecutorConfig defaults = CryptoExecutorConfig.DEFAULT;
+        return new CryptoExecutorConfig(
+                environment.requiredInt(PROP_CRYPTO_THREADS, defaults.getThreads()),
+                environment.requiredInt(PROP_CRYPTO_QUEUE_SIZE, defaults.getQueueSize())
+        );
+    }
+}
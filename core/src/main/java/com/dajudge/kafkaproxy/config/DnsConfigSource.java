@@ -0,0 +1,41 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy.config;
+
+import com.dajudge.proxybase.config.DnsConfig;
+
+public class DnsConfigSource implements ConfigSource<DnsConfig> {
+    private static final String PREFIX_DNS = PREFIX + "DNS_";
+    private static final String PROP_DNS_MIN_TTL = PREFIX_DNS + "MIN_TTL";
+    private static final String PROP_DNS_MAX_TTL = PREFIX_DNS + "MAX_TTL";
+    private static final String PROP_DNS_NEGATIVE_TTL = PREFIX_DNS + "NEGATIVE_TTL";
+
+    @Override
+    public Class<DnsConfig> getConfigClass() {
+        return DnsConfig.class;
+    }
+
+    @Override
+    public DnsConfig parse(final Environment environment) {
+        return new DnsConfig(
+                environment.requiredInt(PROP_DNS_MIN_TTL, DnsConfig.DEFAULT.getMinTtl()),
+                environment.requiredInt(PROP_DNS_MAX_TTL, DnsConfig.DEFAULT.getMaxTtl()),
+                environment.requiredInt(PROP_DNS_NEGATIVE_TTL, DnsConfig.DEFAULT.getNegativeTtl())
+        );
+    }
+}
@@ -32,5 +32,7 @@ public interface Environment {
 
     int requiredInt(String proxy_base_port);
 
+    int requiredInt(String variable, int defaultValue);
+
     FileResource requiredFile(String filename);
 }
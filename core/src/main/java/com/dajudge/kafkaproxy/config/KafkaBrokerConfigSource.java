@@ -21,6 +21,7 @@ import com.dajudge.proxybase.ca.ClientCertCertificateAuthority;
 import com.dajudge.kafkaproxy.ca.ClientCertificateStrategy;
 import com.dajudge.kafkaproxy.ca.NullCertificateAuthorityFactory;
 import com.dajudge.proxybase.config.DownstreamConfig;
+import com.dajudge.proxybase.config.TlsProvider;
 
 public class KafkaBrokerConfigSource implements ConfigSource<KafkaBrokerConfigSource.KafkaBrokerConfig> {
     private static final String KAFKA_SSL_PREFIX = PREFIX + "KAFKA_SSL_";
@@ -33,8 +34,11 @@ public class KafkaBrokerConfigSource implements ConfigSource<KafkaBrokerConfigSo
     private static final String ENV_KAFKA_CLIENT_CERT_STRATEGY = KAFKA_SSL_PREFIX + "CLIENT_CERT_STRATEGY";
     private static final String ENV_KAFKA_SSL_VERIFY_HOSTNAME = KAFKA_SSL_PREFIX + "VERIFY_HOSTNAME";
     private static final String ENV_KAFKA_SSL_CERTIFICATE_FACTORY = KAFKA_SSL_PREFIX + "CERTIFICATE_FACTORY";
+    private static final String ENV_KAFKA_SSL_CONTEXT_CACHE_SIZE = KAFKA_SSL_PREFIX + "CONTEXT_CACHE_SIZE";
+    private static final String ENV_KAFKA_SSL_PROVIDER = KAFKA_SSL_PREFIX + "PROVIDER";
     private static final boolean DEFAULT_KAFKA_SSL_ENABLED = false;
     private static final boolean DEFAULT_KAFKA_SSL_VERIFY_HOSTNAME = true;
+    private static final int DEFAULT_KAFKA_SSL_CONTEXT_CACHE_SIZE = 1024;
     private static final String DEFAULT_CERTIFICATE_FACTORY = "null";
 
     @Override
@@ -52,7 +56,9 @@ public class KafkaBrokerConfigSource implements ConfigSource<KafkaBrokerConfigSo
                 enabled,
                 environment.optionalFile(ENV_KAFKA_SSL_TRUSTSTORE_LOCATION).orElse(null),
                 environment.optionalString(ENV_KAFKA_SSL_TRUSTSTORE_PASSWORD).orElse(null),
-                environment.requiredBoolean(ENV_KAFKA_SSL_VERIFY_HOSTNAME, DEFAULT_KAFKA_SSL_VERIFY_HOSTNAME)
+                environment.requiredBoolean(ENV_KAFKA_SSL_VERIFY_HOSTNAME, DEFAULT_KAFKA_SSL_VERIFY_HOSTNAME),
+                environment.requiredInt(ENV_KAFKA_SSL_CONTEXT_CACHE_SIZE, DEFAULT_KAFKA_SSL_CONTEXT_CACHE_SIZE),
+                TlsProvider.valueOf(environment.requiredString(ENV_KAFKA_SSL_PROVIDER, TlsProvider.JDK.name()))
         );
         final ClientCertCertificateAuthority.ClientCertificateConfig clientCertConfig = new ClientCertCertificateAuthority.ClientCertificateConfig(
                 environment.optionalFile(ENV_KAFKA_SSL_KEYSTORE_LOCATION).orElse(null),
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy.config;
+
+public class ListenerReaperConfigSource implements ConfigSource<ListenerReaperConfigSource.ListenerReaperConfig> {
+    private static final String PREFIX_LISTENER_REAPER = PREFIX + "LISTENER_REAPER_";
+    private static final String PROP_LISTENER_REAPER_GRACE_PERIOD_MS = PREFIX_LISTENER_REAPER + "GRACE_PERIOD_MS";
+
+    @Override
+    public Class<ListenerReaperConfig> getConfigClass() {
+        return ListenerReaperConfig.class;
+    }
+
+    @Override
+    public ListenerReaperConfig parse(final Environment environment) {
+        return new ListenerReaperConfig(environment.requiredInt(PROP_LISTENER_REAPER_GRACE_PERIOD_MS, 0));
+    }
+
+    public static class ListenerReaperConfig {
+        public static final ListenerReaperConfig DISABLED = new ListenerReaperConfig(0);
+
+        private final long gracePeriodMs;
+
+        public ListenerReaperConfig(final long gracePeriodMs) {
+            if (gracePeriodMs < 0) {
+                throw new IllegalArgumentException("Listener reaper grace period must not be negative: "
+                        + gracePeriodMs);
+            }
+            this.gracePeriodMs = gracePeriodMs;
+        }
+
+        public boolean isEnabled() {
+            return gracePeriodMs > 0;
+        }
+
+        public long getGracePeriodMs() {
+            return gracePeriodMs;
+        }
+
+        public long getCheckIntervalMs() {
+            return Math.max(1000, Math.min(60000, gracePeriodMs / 4));
+        }
+    }
+}
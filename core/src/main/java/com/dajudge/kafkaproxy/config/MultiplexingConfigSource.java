@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy.config;
+
+public class MultiplexingConfigSource implements ConfigSource<MultiplexingConfigSource.MultiplexingConfig> {
+    private static final String PREFIX_MULTIPLEXING = PREFIX + "MULTIPLEXING_";
+    private static final String PROP_MULTIPLEXING_BROKER_CONNECTIONS = PREFIX_MULTIPLEXING + "BROKER_CONNECTIONS";
+
+    @Override
+    public Class<MultiplexingConfig> getConfigClass() {
+        return MultiplexingConfig.class;
+    }
+
+    @Override
+    public MultiplexingConfig parse(final Environment environment) {
+        return new MultiplexingConfig(environment.requiredInt(PROP_MULTIPLEXING_BROKER_CONNECTIONS, 0));
+    }
+
+    public static class MultiplexingConfig {
+        public static final MultiplexingConfig DISABLED = new MultiplexingConfig(0);
+
+        private final int brokerConnections;
+
+        public MultiplexingConfig(final int brokerConnections) {
+            if (brokerConnections < 0) {
+                throw new IllegalArgumentException("Number of broker connections must not be negative: "
+                        + brokerConnections);
+            }
+            this.brokerConnections = brokerConnections;
+        }
+
+        public boolean isEnabled() {
+            return brokerConnections > 0;
+        }
+
+        public int getBrokerConnections() {
+            return brokerConnections;
+        }
+    }
+}
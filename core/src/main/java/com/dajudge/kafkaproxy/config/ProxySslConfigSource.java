@@ -17,6 +17,8 @@
 
 package com.dajudge.kafkaproxy.config;
 
+import com.dajudge.proxybase.config.SslSessionConfig;
+import com.dajudge.proxybase.config.TlsProvider;
 import com.dajudge.proxybase.config.UpstreamConfig;
 
 public class ProxySslConfigSource implements ConfigSource<UpstreamConfig> {
@@ -28,6 +30,13 @@ public class ProxySslConfigSource implements ConfigSource<UpstreamConfig> {
     private static final String PROP_CLIENT_SSL_KEYSTORE_LOCATION = PREFIX_CLIENT_SSL + "KEYSTORE_LOCATION";
     private static final String PROP_CLIENT_SSL_KEYSTORE_PASSWORD = PREFIX_CLIENT_SSL + "KEYSTORE_PASSWORD";
     private static final String PROP_CLIENT_SSL_KEY_PASSWORD = PREFIX_CLIENT_SSL + "KEY_PASSWORD";
+    private static final String PROP_CLIENT_SSL_PROVIDER = PREFIX_CLIENT_SSL + "PROVIDER";
+    private static final String PROP_CLIENT_SSL_SESSION_CACHE_SIZE = PREFIX_CLIENT_SSL + "SESSION_CACHE_SIZE";
+    private static final String PROP_CLIENT_SSL_SESSION_TIMEOUT_SECONDS = PREFIX_CLIENT_SSL + "SESSION_TIMEOUT_SECONDS";
+    private static final String PROP_CLIENT_SSL_SESSION_TICKET_KEYS_LOCATION =
+            PREFIX_CLIENT_SSL + "SESSION_TICKET_KEYS_LOCATION";
+    private static final String PROP_CLIENT_SSL_SESSION_TICKET_KEY_LIFETIME_SECONDS =
+            PREFIX_CLIENT_SSL + "SESSION_TICKET_KEY_LIFETIME_SECONDS";
     private static final boolean DEFAULT_CLIENT_SSL_ENABLED = false;
     private static final boolean DEFAULT_CLIENT_AUTH_REQUIRED = false;
 
@@ -49,7 +58,27 @@ public class ProxySslConfigSource implements ConfigSource<UpstreamConfig> {
                 environment.optionalFile(PROP_CLIENT_SSL_KEYSTORE_LOCATION).orElse(null),
                 environment.optionalString(PROP_CLIENT_SSL_KEYSTORE_PASSWORD).orElse(null),
                 environment.optionalString(PROP_CLIENT_SSL_KEY_PASSWORD).orElse(null),
-                environment.requiredBoolean(PROP_CLIENT_SSL_AUTH_REQUIRED, DEFAULT_CLIENT_AUTH_REQUIRED)
+                environment.requiredBoolean(PROP_CLIENT_SSL_AUTH_REQUIRED, DEFAULT_CLIENT_AUTH_REQUIRED),
+                TlsProvider.valueOf(environment.requiredString(PROP_CLIENT_SSL_PROVIDER, TlsProvider.JDK.name())),
+                parseSessionConfig(environment)
+        );
+    }
+
+    private static SslSessionConfig parseSessionConfig(final Environment environment) {
+        return new SslSessionConfig(
+                environment.requiredInt(
+                        PROP_CLIENT_SSL_SESSION_CACHE_SIZE,
+                        SslSessionConfig.DEFAULT.getCacheSize()
+                ),
+                environment.requiredInt(
+                        PROP_CLIENT_SSL_SESSION_TIMEOUT_SECONDS,
+                        SslSessionConfig.DEFAULT.getTimeoutSeconds()
+                ),
+                environment.optionalFile(PROP_CLIENT_SSL_SESSION_TICKET_KEYS_LOCATION).orElse(null),
+                environment.requiredInt(
+                        PROP_CLIENT_SSL_SESSION_TICKET_KEY_LIFETIME_SECONDS,
+                        SslSessionConfig.DEFAULT.getTicketKeyLifetimeSeconds()
+                )
         );
     }
 }
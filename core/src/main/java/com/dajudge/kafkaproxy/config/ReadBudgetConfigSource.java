@@ -0,0 +1,39 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy.config;
+
+import com.dajudge.proxybase.config.ReadBudgetConfig;
+
+public class ReadBudgetConfigSource implements ConfigSource<ReadBudgetConfig> {
+    private static final String PREFIX_READ_BUDGET = PREFIX + "READ_BUDGET_";
+    private static final String PROP_READ_BUDGET_BYTES = PREFIX_READ_BUDGET + "BYTES";
+    private static final String PROP_READ_BUDGET_MESSAGES = PREFIX_READ_BUDGET + "MESSAGES";
+
+    @Override
+    public Class<ReadBudgetConfig> getConfigClass() {
+        return ReadBudgetConfig.class;
+    }
+
+    @Override
+    public ReadBudgetConfig parse(final Environment environment) {
+        return new ReadBudgetConfig(
+                environment.requiredInt(PROP_READ_BUDGET_BYTES, ReadBudgetConfig.DEFAULT.getMaxBytesPerRead()),
+                environment.requiredInt(PROP_READ_BUDGET_MESSAGES, ReadBudgetConfig.DEFAULT.getMaxMessagesPerRead())
+        );
+    }
+}
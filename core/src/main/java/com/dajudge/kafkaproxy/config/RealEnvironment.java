@@ -56,6 +56,11 @@ public class RealEnvironment implements Environment {
         return Integer.parseInt(requiredString(variable));
     }
 
+    @Override
+    public int requiredInt(final String variable, final int defaultValue) {
+        return optionalString(variable).map(Integer::parseInt).orElse(defaultValue);
+    }
+
     @Override
     public FileResource requiredFile(final String filename) {
         return file(filename);
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy.config;
+
+import com.dajudge.proxybase.config.SniConfig;
+
+public class SniConfigSource implements ConfigSource<SniConfig> {
+    private static final String PREFIX_SNI = PREFIX + "SNI_";
+    public static final String PROP_SNI_PORT = PREFIX_SNI + "PORT";
+    private static final String PROP_SNI_HOSTNAME_PATTERN = PREFIX_SNI + "HOSTNAME_PATTERN";
+
+    @Override
+    public Class<SniConfig> getConfigClass() {
+        return SniConfig.class;
+    }
+
+    @Override
+    public SniConfig parse(final Environment environment) {
+        return new SniConfig(
+                environment.requiredInt(PROP_SNI_PORT, SniConfig.DISABLED.getPort()),
+                environment.optionalString(PROP_SNI_HOSTNAME_PATTERN).orElse(null)
+        );
+    }
+}
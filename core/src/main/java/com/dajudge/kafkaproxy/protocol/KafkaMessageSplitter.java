@@ -19,7 +19,7 @@ package com.dajudge.kafkaproxy.protocol;
 
 import com.dajudge.proxybase.Sink;
 import io.netty.buffer.ByteBuf;
-import io.netty.channel.ChannelFuture;
+import io.netty.util.concurrent.Future;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,7 +46,7 @@ public class KafkaMessageSplitter implements Sink<ByteBuf> {
     }
 
     @Override
-    public ChannelFuture close() {
+    public Future<?> close() {
         return requestSink.close();
     }
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy.protocol;
+
+import com.dajudge.kafkaproxy.protocol.rewrite.ResponseRewriter;
+import com.dajudge.proxybase.DownstreamSinkFactory;
+import com.dajudge.proxybase.Sink;
+import com.dajudge.proxybase.ca.KeyStoreWrapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.Future;
+
+public class KafkaMultiplexer implements DownstreamSinkFactory {
+    private final DownstreamSinkFactory brokerConnectionFactory;
+    private final ResponseRewriter rewriter;
+    private final MultiplexedBrokerConnection[] brokerConnections;
+    private int nextBrokerConnection;
+
+    public KafkaMultiplexer(
+            final DownstreamSinkFactory brokerConnectionFactory,
+            final ResponseRewriter rewriter,
+            final int brokerConnections
+    ) {
+        this.brokerConnectionFactory = brokerConnectionFactory;
+        this.rewriter = rewriter;
+        this.brokerConnections = new MultiplexedBrokerConnection[brokerConnections];
+    }
+
+    @Override
+    public Sink<ByteBuf> create(final Sink<ByteBuf> upstreamSink, final Future<KeyStoreWrapper> clientIdentity) {
+        final KafkaRequestStore requestStore = new KafkaRequestStore(rewriter);
+        final Sink<KafkaMessage> responseSink = new KafkaResponseProcessor(upstreamSink, requestStore);
+        return new KafkaMessageSplitter(brokerConnection(clientIdentity).attach(responseSink, requestStore));
+    }
+
+    @Override
+    public synchronized void close() {
+        for (final MultiplexedBrokerConnection brokerConnection : brokerConnections) {
+            if (brokerConnection != null) {
+                brokerConnection.close();
+            }
+        }
+        brokerConnectionFactory.close();
+    }
+
+    private synchronized MultiplexedBrokerConnection brokerConnection(final Future<KeyStoreWrapper> clientIdentity) {
+        final int index = nextBrokerConnection;
+        nextBrokerConnection = (nextBrokerConnection + 1) % brokerConnections.length;
+        if (brokerConnections[index] == null || brokerConnections[index].isClosed()) {
+            brokerConnections[index] = MultiplexedBrokerConnection.open(brokerConnectionFactory, clientIdentity);
+        }
+        return brokerConnections[index];
+    }
+}
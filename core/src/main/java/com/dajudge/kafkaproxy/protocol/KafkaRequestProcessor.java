@@ -19,7 +19,7 @@ package com.dajudge.kafkaproxy.protocol;
 
 import com.dajudge.proxybase.Sink;
 import io.netty.buffer.ByteBuf;
-import io.netty.channel.ChannelFuture;
+import io.netty.util.concurrent.Future;
 import org.apache.kafka.common.requests.RequestHeader;
 
 public class KafkaRequestProcessor implements Sink<KafkaMessage> {
@@ -35,14 +35,19 @@ public class KafkaRequestProcessor implements Sink<KafkaMessage> {
     public void accept(final KafkaMessage request) {
         try {
             kafkaRequestStore.add(RequestHeader.parse(request.payload().nioBuffer()));
-            requestSink.accept(request.serialize());
+            final ByteBuf serialized = request.serialize();
+            try {
+                requestSink.accept(serialized);
+            } finally {
+                serialized.release();
+            }
         } finally {
             request.release();
         }
     }
 
     @Override
-    public ChannelFuture close() {
+    public Future<?> close() {
         return requestSink.close();
     }
 }
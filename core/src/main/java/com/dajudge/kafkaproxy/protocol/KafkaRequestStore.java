@@ -55,6 +55,12 @@ public class KafkaRequestStore {
         }
         final short headerVersion = requestHeader.apiKey().responseHeaderVersion(requestHeader.apiVersion());
         final ResponseHeader responseHeader = ResponseHeader.parse(responseBuffer, headerVersion);
-        sink.accept(rewriter.rewrite(requestHeader, responseHeader, responseBuffer).orElse(response.serialize()));
+        final ByteBuf rewritten = rewriter.rewrite(requestHeader, responseHeader, responseBuffer)
+                .orElseGet(response::serialize);
+        try {
+            sink.accept(rewritten);
+        } finally {
+            rewritten.release();
+        }
     }
 }
@@ -19,7 +19,7 @@ package com.dajudge.kafkaproxy.protocol;
 
 import com.dajudge.proxybase.Sink;
 import io.netty.buffer.ByteBuf;
-import io.netty.channel.ChannelFuture;
+import io.netty.util.concurrent.Future;
 
 public class KafkaResponseProcessor implements Sink<KafkaMessage> {
     private final Sink<ByteBuf> sink;
@@ -36,7 +36,7 @@ public class KafkaResponseProcessor implements Sink<KafkaMessage> {
     }
 
     @Override
-    public ChannelFuture close() {
+    public Future<?> close() {
         return sink.close();
     }
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy.protocol;
+
+import com.dajudge.proxybase.DownstreamSinkFactory;
+import com.dajudge.proxybase.Sink;
+import com.dajudge.proxybase.ca.KeyStoreWrapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class MultiplexedBrokerConnection implements Sink<KafkaMessage> {
+    private static final Logger LOG = LoggerFactory.getLogger(MultiplexedBrokerConnection.class);
+    private static final int CORRELATION_ID_OFFSET = 8;
+    private final Map<Integer, PendingResponse> pendingResponses = new ConcurrentHashMap<>();
+    private final Set<MultiplexedClient> clients = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextCorrelationId = new AtomicInteger();
+    private volatile Sink<ByteBuf> brokerSink;
+    private volatile boolean closed;
+
+    private MultiplexedBrokerConnection() {
+    }
+
+    static MultiplexedBrokerConnection open(
+            final DownstreamSinkFactory brokerConnectionFactory,
+            final Future<KeyStoreWrapper> clientIdentity
+    ) {
+        final MultiplexedBrokerConnection connection = new MultiplexedBrokerConnection();
+        connection.brokerSink = brokerConnectionFactory.create(new KafkaMessageSplitter(connection), clientIdentity);
+        return connection;
+    }
+
+    MultiplexedClient attach(final Sink<KafkaMessage> responseSink, final KafkaRequestStore requestStore) {
+        final MultiplexedClient client = new MultiplexedClient(this, responseSink, requestStore);
+        clients.add(client);
+        if (closed) {
+            client.close();
+        }
+        return client;
+    }
+
+    void detach(final MultiplexedClient client) {
+        clients.remove(client);
+    }
+
+    void send(final MultiplexedClient client, final int clientCorrelationId, final KafkaMessage request) {
+        final ByteBuf buffer = request.serialize();
+        final int correlationId = nextCorrelationId.getAndIncrement() & Integer.MAX_VALUE;
+        pendingResponses.put(correlationId, new PendingResponse(client, clientCorrelationId));
+        buffer.setInt(CORRELATION_ID_OFFSET, correlationId);
+        sendToBroker(buffer);
+    }
+
+    void sendWithoutResponse(final KafkaMessage request) {
+        sendToBroker(request.serialize());
+    }
+
+    private void sendToBroker(final ByteBuf buffer) {
+        try {
+            brokerSink.accept(buffer);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void accept(final KafkaMessage response) {
+        final ByteBuf payload = response.payload();
+        final int correlationId = payload.getInt(0);
+        final PendingResponse pendingResponse = pendingResponses.remove(correlationId);
+        if (pendingResponse == null) {
+            LOG.warn("Dropping response with unknown correlation ID {}", correlationId);
+            response.release();
+            return;
+        }
+        payload.setInt(0, pendingResponse.clientCorrelationId);
+        pendingResponse.client.respond(response);
+    }
+
+    @Override
+    public Future<?> close() {
+        closed = true;
+        clients.forEach(MultiplexedClient::close);
+        pendingResponses.clear();
+        final Sink<ByteBuf> sink = brokerSink;
+        return sink == null ? ImmediateEventExecutor.INSTANCE.newSucceededFuture(null) : sink.close();
+    }
+
+    private static class PendingResponse {
+        private final MultiplexedClient client;
+        private final int clientCorrelationId;
+
+        private PendingResponse(final MultiplexedClient client, final int clientCorrelationId) {
+            this.client = client;
+            this.clientCorrelationId = clientCorrelationId;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy.protocol;
+
+import com.dajudge.proxybase.Sink;
+import io.netty.util.concurrent.Future;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.requests.RequestHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+
+class MultiplexedClient implements Sink<KafkaMessage> {
+    private static final Logger LOG = LoggerFactory.getLogger(MultiplexedClient.class);
+    private final MultiplexedBrokerConnection brokerConnection;
+    private final Sink<KafkaMessage> responseSink;
+    private final KafkaRequestStore requestStore;
+    private volatile boolean closed;
+
+    MultiplexedClient(
+            final MultiplexedBrokerConnection brokerConnection,
+            final Sink<KafkaMessage> responseSink,
+            final KafkaRequestStore requestStore
+    ) {
+        this.brokerConnection = brokerConnection;
+        this.responseSink = responseSink;
+        this.requestStore = requestStore;
+    }
+
+    @Override
+    public void accept(final KafkaMessage request) {
+        try {
+            final ByteBuffer buffer = request.payload().nioBuffer();
+            final RequestHeader requestHeader = RequestHeader.parse(buffer);
+            if (requestHeader.apiKey() == ApiKeys.SASL_HANDSHAKE
+                    || requestHeader.apiKey() == ApiKeys.SASL_AUTHENTICATE) {
+                LOG.warn("Closing client connection: SASL is not supported with multiplexed broker connections.");
+                close();
+                return;
+            }
+            if (expectsResponse(requestHeader, buffer)) {
+                requestStore.add(requestHeader);
+                brokerConnection.send(this, requestHeader.correlationId(), request);
+            } else {
+                brokerConnection.sendWithoutResponse(request);
+            }
+        } finally {
+            request.release();
+        }
+    }
+
+    void respond(final KafkaMessage response) {
+        if (closed) {
+            LOG.trace("Dropping response for closed client.");
+            response.release();
+            return;
+        }
+        try {
+            responseSink.accept(response);
+        } catch (final RuntimeException e) {
+            LOG.warn("Closing client connection: failed to process response.", e);
+            response.release();
+            close();
+        }
+    }
+
+    @Override
+    public Future<?> close() {
+        closed = true;
+        brokerConnection.detach(this);
+        return responseSink.close();
+    }
+
+    private static boolean expectsResponse(final RequestHeader requestHeader, final ByteBuffer body) {
+        if (requestHeader.apiKey() != ApiKeys.PRODUCE) {
+            return true;
+        }
+        if (requestHeader.apiVersion() >= 3) {
+            final short transactionalIdLength = body.getShort();
+            if (transactionalIdLength > 0) {
+                body.position(body.position() + transactionalIdLength);
+            }
+        }
+        return body.getShort() != 0;
+    }
+}
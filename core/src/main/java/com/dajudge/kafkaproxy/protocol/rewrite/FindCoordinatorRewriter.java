@@ -19,7 +19,6 @@ package com.dajudge.kafkaproxy.protocol.rewrite;
 
 import com.dajudge.kafkaproxy.KafkaProxyChannelManager;
 import com.dajudge.kafkaproxy.BrokerMapping;
-import com.dajudge.proxybase.config.Endpoint;
 import org.apache.kafka.common.message.FindCoordinatorResponseData;
 import org.apache.kafka.common.protocol.ApiKeys;
 import org.apache.kafka.common.requests.FindCoordinatorResponse;
@@ -51,7 +50,7 @@ public class FindCoordinatorRewriter extends BaseReflectingRewriter<FindCoordina
         if (data.host() == null || data.host().isEmpty()) {
             return;
         }
-        final BrokerMapping mapping = proxyChannelManager.getByBrokerEndpoint(new Endpoint(data.host(), data.port()));
+        final BrokerMapping mapping = proxyChannelManager.getByBroker(data.nodeId(), data.host(), data.port());
         LOG.debug(
                 "Rewriting {}: {}:{} -> {}:{}",
                 ApiKeys.FIND_COORDINATOR,
@@ -19,7 +19,6 @@ package com.dajudge.kafkaproxy.protocol.rewrite;
 
 import com.dajudge.kafkaproxy.KafkaProxyChannelManager;
 import com.dajudge.kafkaproxy.BrokerMapping;
-import com.dajudge.proxybase.config.Endpoint;
 import org.apache.kafka.common.message.MetadataResponseData;
 import org.apache.kafka.common.protocol.ApiKeys;
 import org.apache.kafka.common.requests.MetadataResponse;
@@ -43,7 +42,7 @@ public class MetadataRewriter extends BaseReflectingRewriter<MetadataResponse> {
         field.setAccessible(true);
         final MetadataResponseData data = (MetadataResponseData) field.get(response);
         data.brokers().forEach(b -> {
-            final BrokerMapping mapping = proxyChannelManager.getByBrokerEndpoint(new Endpoint(b.host(), b.port()));
+            final BrokerMapping mapping = proxyChannelManager.getByBroker(b.nodeId(), b.host(), b.port());
             if (mapping == null) {
                 LOG.error("Unknown broker node seen in {}: {}:{}", ApiKeys.METADATA, b.host(), b.port());
             } else {
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy;
+
+import com.dajudge.kafkaproxy.config.BrokerConfigSource;
+import com.dajudge.kafkaproxy.config.BrokerConfigSource.BrokerConfig;
+import com.dajudge.kafkaproxy.config.BrokerConfigSource.BrokerMapEntry;
+import com.dajudge.kafkaproxy.config.BrokerConfigSource.PortAssignment;
+import com.dajudge.kafkaproxy.roundtrip.util.TestEnvironment;
+import com.dajudge.proxybase.config.Endpoint;
+import com.dajudge.proxybase.config.SniConfig;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static com.dajudge.kafkaproxy.config.BrokerConfigSource.BrokerMapEntry.NO_NODE_ID;
+import static com.dajudge.kafkaproxy.config.BrokerConfigSource.PortAssignment.HASH;
+import static com.dajudge.kafkaproxy.config.BrokerConfigSource.PortAssignment.NODE_ID;
+import static com.dajudge.kafkaproxy.config.BrokerConfigSource.PortAssignment.SEQUENTIAL;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BrokerMapperTest {
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void distinguishes_endpoints_with_same_concatenation() {
+        final BrokerMapper mapper = mapper(config(SEQUENTIAL, null));
+
+        final BrokerMapping first = mapper.getBrokerMapping(new Endpoint("host1", 23));
+        final BrokerMapping second = mapper.getBrokerMapping(new Endpoint("host12", 3));
+
+        assertNotEquals(first.getProxy(), second.getProxy());
+        assertEquals(first.getProxy(), mapper.getBrokerMapping(new Endpoint("host1", 23)).getProxy());
+    }
+
+    @Test
+    public void returns_same_mapping_for_repeated_lookups() {
+        final BrokerMapper mapper = mapper(parse("1@kafka1:9092: 40005\n"));
+
+        final BrokerMapping node = mapper.getBrokerMapping(1, new Endpoint("kafka1", 9092));
+        final BrokerMapping endpoint = mapper.getBrokerMapping(new Endpoint("kafka2", 9092));
+
+        assertSame(node, mapper.getBrokerMapping(1, new Endpoint("kafka1", 9092)));
+        assertSame(endpoint, mapper.getBrokerMapping(new Endpoint("kafka2", 9092)));
+    }
+
+    @Test
+    public void uses_static_broker_map() {
+        final BrokerMapper mapper = mapper(parse("kafka1:9092: 40001\nkafka2:9092: 40000\n"));
+
+        assertEquals(asList(new Endpoint("kafka1", 9092), new Endpoint("kafka2", 9092)), knownBrokers(mapper));
+        assertEquals(new Endpoint("proxy", 40001), mapper.getBrokerMapping(new Endpoint("kafka1", 9092)).getProxy());
+        assertEquals(new Endpoint("proxy", 40000), mapper.getBrokerMapping(new Endpoint("kafka2", 9092)).getProxy());
+    }
+
+    @Test
+    public void skips_statically_mapped_ports() {
+        final BrokerMapper mapper = mapper(parse("kafka1:9092: 40000\n"));
+
+        final BrokerMapping dynamic = mapper.getBrokerMapping(new Endpoint("kafka3", 9092));
+
+        assertEquals(new Endpoint("proxy", 40001), dynamic.getProxy());
+    }
+
+    @Test
+    public void restores_journaled_ports() throws IOException {
+        final File journal = new File(tmp.getRoot(), "journal.yaml");
+        final BrokerMapper before = mapper(journaled(journal));
+        before.getBrokerMapping(new Endpoint("kafka2", 9092));
+        before.getBrokerMapping(new Endpoint("kafka1", 9092));
+        before.close();
+
+        final BrokerMapper after = mapper(journaled(journal));
+
+        assertEquals(asList(new Endpoint("kafka2", 9092), new Endpoint("kafka1", 9092)), knownBrokers(after));
+        assertEquals(new Endpoint("proxy", 40001), after.getBrokerMapping(new Endpoint("kafka1", 9092)).getProxy());
+        assertEquals(new Endpoint("proxy", 40002), after.getBrokerMapping(new Endpoint("kafka3", 9092)).getProxy());
+    }
+
+    @Test
+    public void skips_malformed_and_incomplete_journal_entries() throws IOException {
+        final File journal = new File(tmp.getRoot(), "journal.yaml");
+        Files.write(journal.toPath(), "kafka1:9092: 40001\nkafka2:9092: x\nkafka3:9092: 4".getBytes(UTF_8));
+
+        final BrokerMapper mapper = mapper(journaled(journal));
+
+        assertEquals(singletonList(new Endpoint("kafka1", 9092)), knownBrokers(mapper));
+        assertEquals(new Endpoint("proxy", 40000), mapper.getBrokerMapping(new Endpoint("kafka3", 9092)).getProxy());
+    }
+
+    @Test
+    public void keeps_proxy_port_when_node_moves() {
+        final BrokerMapper mapper = mapper(parse("1@kafka1:9092: 40005\n"));
+
+        final BrokerMapping moved = mapper.getBrokerMapping(1, new Endpoint("kafka1-new", 9092));
+        final BrokerMapping other = mapper.getBrokerMapping(2, new Endpoint("kafka1", 9092));
+
+        assertEquals(new Endpoint("kafka1-new", 9092), moved.getBroker());
+        assertEquals(new Endpoint("proxy", 40005), moved.getProxy());
+        assertEquals(new Endpoint("proxy", 40000), other.getProxy());
+    }
+
+    @Test
+    public void adopts_endpoint_mapping_for_node() {
+        final BrokerMapper mapper = mapper(parse("kafka1:9092: 40005\n"));
+
+        assertEquals(new Endpoint("proxy", 40005), mapper.getBrokerMapping(1, new Endpoint("kafka1", 9092)).getProxy());
+    }
+
+    @Test
+    public void does_not_adopt_endpoint_mapping_of_other_node() {
+        final BrokerMapper mapper = mapper(config(SEQUENTIAL, null));
+        final BrokerMapping replaced = mapper.getBrokerMapping(1, new Endpoint("kafka1", 9092));
+
+        final BrokerMapping replacement = mapper.getBrokerMapping(2, new Endpoint("kafka1", 9092));
+
+        assertEquals(new Endpoint("proxy", 40000), replaced.getProxy());
+        assertEquals(new Endpoint("proxy", 40001), replacement.getProxy());
+        assertEquals(replaced.getProxy(), mapper.getBrokerMapping(1, new Endpoint("kafka1", 9092)).getProxy());
+    }
+
+    @Test
+    public void restores_journaled_node_after_move() throws IOException {
+        final File journal = new File(tmp.getRoot(), "journal.yaml");
+        final BrokerMapper before = mapper(journaled(journal));
+        before.getBrokerMapping(1, new Endpoint("kafka1", 9092));
+        before.getBrokerMapping(2, new Endpoint("kafka2", 9092));
+        before.getBrokerMapping(1, new Endpoint("kafka1-new", 9092));
+        before.close();
+
+        final BrokerMapper after = mapper(journaled(journal));
+
+        assertEquals(asList(new Endpoint("kafka1-new", 9092), new Endpoint("kafka2", 9092)), knownBrokers(after));
+        final BrokerMapping restored = after.getBrokerMapping(1, new Endpoint("kafka1-new", 9092));
+        assertEquals(new Endpoint("proxy", 40000), restored.getProxy());
+    }
+
+    @Test
+    public void reassigns_released_endpoint_port() {
+        final BrokerMapper mapper = mapper(config(SEQUENTIAL, null));
+        final BrokerMapping departed = mapper.getBrokerMapping(new Endpoint("kafka1", 9092));
+        mapper.getBrokerMapping(new Endpoint("kafka2", 9092));
+
+        mapper.release(departed);
+
+        assertEquals(departed.getProxy(), mapper.getBrokerMapping(new Endpoint("kafka3", 9092)).getProxy());
+    }
+
+    @Test
+    public void keeps_ports_of_nodes_and_broker_map_on_release() {
+        final BrokerMapper mapper = mapper(new BrokerConfig(
+                emptyList(),
+                "proxy",
+                40000,
+                singletonList(new BrokerMapEntry(NO_NODE_ID, new Endpoint("kafka1", 9092), 40005)),
+                null,
+                SEQUENTIAL,
+                100,
+                0
+        ));
+        final BrokerMapping pinned = mapper.getBrokerMapping(new Endpoint("kafka1", 9092));
+        final BrokerMapping node = mapper.getBrokerMapping(2, new Endpoint("kafka2", 9092));
+
+        mapper.release(pinned);
+        mapper.release(node);
+
+        assertSame(pinned, mapper.getBrokerMapping(new Endpoint("kafka1", 9092)));
+        assertSame(node, mapper.getBrokerMapping(2, new Endpoint("kafka2", 9092)));
+        assertNotEquals(node.getProxy(), mapper.getBrokerMapping(new Endpoint("kafka3", 9092)).getProxy());
+    }
+
+    @Test
+    public void advertises_sni_hostnames() {
+        final SniConfig sniConfig = new SniConfig(9093, "broker-{id}.proxy");
+        final BrokerMapper mapper = new BrokerMapper(parse("kafka1:9092: 40005\n"), sniConfig);
+
+        final BrokerMapping mapped = mapper.getBrokerMapping(new Endpoint("kafka1", 9092));
+        final BrokerMapping discovered = mapper.getBrokerMapping(new Endpoint("kafka2", 9092));
+
+        assertEquals(new Endpoint("broker-40005.proxy", 9093), mapped.getProxy());
+        assertEquals(new Endpoint("broker-40000.proxy", 9093), discovered.getProxy());
+    }
+
+    @Test
+    public void assigns_ports_by_node_id() {
+        final BrokerMapper mapper = mapper(config(NODE_ID, null));
+
+        final BrokerMapping bootstrap = mapper.getBrokerMapping(new Endpoint("kafka", 9092));
+        final BrokerMapping node = mapper.getBrokerMapping(7, new Endpoint("kafka7", 9092));
+
+        assertEquals(new Endpoint("proxy", 40100), bootstrap.getProxy());
+        assertEquals(new Endpoint("proxy", 40007), node.getProxy());
+    }
+
+    @Test
+    public void assigns_same_hashed_ports_regardless_of_discovery_order() {
+        final BrokerMapper first = mapper(config(HASH, null));
+        final BrokerMapper second = mapper(config(HASH, null));
+
+        final List<Integer> nodeIds = asList(1001, 1002, 1003, 1004, 1005);
+        final List<Endpoint> firstProxies = nodeIds.stream()
+                .map(nodeId -> first.getBrokerMapping(nodeId, new Endpoint("kafka" + nodeId, 9092)).getProxy())
+                .collect(toList());
+        for (int i = nodeIds.size() - 1; i >= 0; i--) {
+            final int nodeId = nodeIds.get(i);
+            final BrokerMapping mapping = second.getBrokerMapping(nodeId, new Endpoint("kafka" + nodeId, 9092));
+            assertEquals(firstProxies.get(i), mapping.getProxy());
+        }
+    }
+
+    @Test
+    public void refuses_node_on_hash_collision() {
+        final BrokerMapper mapper = mapper(config(HASH, null));
+        final Endpoint taken = mapper.getBrokerMapping(8, new Endpoint("kafka8", 9092)).getProxy();
+        final int colliding = collidingNodeId(8);
+
+        assertRefused(() -> mapper.getBrokerMapping(colliding, new Endpoint("kafka" + colliding, 9092)));
+        assertEquals(taken, mapper.getBrokerMapping(8, new Endpoint("kafka8", 9092)).getProxy());
+    }
+
+    @Test
+    public void maps_colliding_node_from_broker_map() {
+        final BrokerMapper probe = mapper(config(HASH, null));
+        final Endpoint taken = probe.getBrokerMapping(8, new Endpoint("kafka8", 9092)).getProxy();
+        final int colliding = collidingNodeId(8);
+        final BrokerMapper mapper = new BrokerMapper(new BrokerConfig(
+                emptyList(),
+                "proxy",
+                40000,
+                singletonList(new BrokerMapEntry(colliding, new Endpoint("kafka" + colliding, 9092), 40100)),
+                null,
+                HASH,
+                100,
+                0
+        ), SniConfig.DISABLED);
+
+        assertEquals(taken, mapper.getBrokerMapping(8, new Endpoint("kafka8", 9092)).getProxy());
+        assertEquals(
+                new Endpoint("proxy", 40100),
+                mapper.getBrokerMapping(colliding, new Endpoint("kafka" + colliding, 9092)).getProxy()
+        );
+    }
+
+    @Test
+    public void refuses_node_id_outside_of_port_range() {
+        final BrokerMapper mapper = mapper(config(NODE_ID, null));
+
+        assertRefused(() -> mapper.getBrokerMapping(100, new Endpoint("kafka100", 9092)));
+        assertRefused(() -> mapper.getBrokerMapping(-1, new Endpoint("kafka-1", 9092)));
+        final BrokerMapping inside = mapper.getBrokerMapping(99, new Endpoint("kafka99", 9092));
+        assertEquals(new Endpoint("proxy", 40099), inside.getProxy());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejects_duplicate_proxy_ports() {
+        parse("kafka1:9092: 40000\nkafka2:9092: 40000\n");
+    }
+
+    private static int collidingNodeId(final int nodeId) {
+        final BrokerMapper mapper = mapper(config(HASH, null));
+        final Endpoint taken = mapper.getBrokerMapping(nodeId, new Endpoint("kafka", 9092)).getProxy();
+        for (int candidate = nodeId + 1; ; candidate++) {
+            final BrokerMapper other = mapper(config(HASH, null));
+            if (other.getBrokerMapping(candidate, new Endpoint("kafka", 9092)).getProxy().equals(taken)) {
+                return candidate;
+            }
+        }
+    }
+
+    private static void assertRefused(final Runnable mapping) {
+        try {
+            mapping.run();
+            fail("Mapping was not refused");
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage().contains("broker map"));
+        }
+    }
+
+    private static List<Endpoint> knownBrokers(final BrokerMapper mapper) {
+        return mapper.getKnownBrokers().stream().map(BrokerMapEntry::getBroker).collect(toList());
+    }
+
+    private static BrokerMapper mapper(final BrokerConfig brokerConfig) {
+        return new BrokerMapper(brokerConfig, SniConfig.DISABLED);
+    }
+
+    private static BrokerConfig journaled(final File journal) {
+        return config(SEQUENTIAL, journal.getAbsolutePath());
+    }
+
+    private static BrokerConfig config(final PortAssignment portAssignment, final String journal) {
+        return new BrokerConfig(emptyList(), "proxy", 40000, emptyList(), journal, portAssignment, 100, 0);
+    }
+
+    private static BrokerConfig parse(final String brokerMap) {
+        return new BrokerConfigSource().parse(new TestEnvironment()
+                .withEnv("KAFKAPROXY_HOSTNAME", "proxy")
+                .withEnv("KAFKAPROXY_BASE_PORT", "40000")
+                .withEnv("KAFKAPROXY_BOOTSTRAP_SERVERS", "kafka1:9092")
+                .withEnv("KAFKAPROXY_BROKER_MAP_FILE", "brokers.yaml")
+                .withFile("brokers.yaml", brokerMap.getBytes(UTF_8)));
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy;
+
+import com.dajudge.proxybase.config.Endpoint;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class BrokerMappingTableTest {
+    @Test
+    public void finds_mappings_by_node_id() {
+        final BrokerMapping first = mapping("broker1", 40000);
+        final BrokerMapping second = mapping("broker2", 40001);
+        final BrokerMapping third = mapping("broker3", 40002);
+        final BrokerMappingTable table = BrokerMappingTable.EMPTY.with(1001, first).with(3, third).with(42, second);
+
+        assertSame(first, table.get(1001));
+        assertSame(second, table.get(42));
+        assertSame(third, table.get(3));
+        assertNull(table.get(7));
+    }
+
+    @Test
+    public void replaces_mappings_without_touching_previous_snapshot() {
+        final BrokerMappingTable before = BrokerMappingTable.EMPTY.with(1, mapping("broker1", 40000));
+
+        final BrokerMappingTable after = before.with(1, mapping("broker1-moved", 40000));
+
+        assertEquals("broker1", before.get(1).getBroker().getHost());
+        assertEquals("broker1-moved", after.get(1).getBroker().getHost());
+    }
+
+    @Test
+    public void removes_mappings_of_reaped_proxy() {
+        final BrokerMappingTable before = BrokerMappingTable.EMPTY
+                .with(1, mapping("broker1", 40000))
+                .with(2, mapping("broker2", 40001))
+                .with(3, mapping("broker3", 40002));
+
+        final BrokerMappingTable after = before.withoutProxy(new Endpoint("proxy", 40001));
+
+        assertEquals("broker1", after.get(1).getBroker().getHost());
+        assertNull(after.get(2));
+        assertEquals("broker3", after.get(3).getBroker().getHost());
+        assertEquals("broker2", before.get(2).getBroker().getHost());
+    }
+
+    private static BrokerMapping mapping(final String host, final int proxyPort) {
+        return new BrokerMapping(new Endpoint(host, 9092), new Endpoint("proxy", proxyPort));
+    }
+}
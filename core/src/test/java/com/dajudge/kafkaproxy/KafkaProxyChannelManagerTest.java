@@ -0,0 +1,227 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy;
+
+import com.dajudge.kafkaproxy.config.BrokerConfigSource.BrokerConfig;
+import com.dajudge.kafkaproxy.config.BrokerConfigSource.BrokerMapEntry;
+import com.dajudge.kafkaproxy.config.MultiplexingConfigSource.MultiplexingConfig;
+import com.dajudge.proxybase.ProxyApplication;
+import com.dajudge.proxybase.ProxyChannel;
+import com.dajudge.proxybase.ProxyChannelFactory;
+import com.dajudge.proxybase.ca.NullCertificateAuthority;
+import com.dajudge.proxybase.config.ConnectConfig;
+import com.dajudge.proxybase.config.ConnectionPoolConfig;
+import com.dajudge.proxybase.config.CryptoExecutorConfig;
+import com.dajudge.proxybase.config.DnsConfig;
+import com.dajudge.proxybase.config.DownstreamConfig;
+import com.dajudge.proxybase.config.Endpoint;
+import com.dajudge.proxybase.config.ReadBudgetConfig;
+import com.dajudge.proxybase.config.SniConfig;
+import com.dajudge.proxybase.config.UpstreamConfig;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static com.dajudge.kafkaproxy.config.BrokerConfigSource.PortAssignment.SEQUENTIAL;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class KafkaProxyChannelManagerTest {
+    private static final long GRACE_PERIOD_NANOS = MILLISECONDS.toNanos(200);
+
+    @Test
+    public void drops_mapping_when_bind_fails() throws Exception {
+        final ServerSocket occupied = new ServerSocket(0);
+        final int port = occupied.getLocalPort();
+        final TestApplication app = new TestApplication(port);
+        app.start();
+        try {
+            final KafkaProxyChannelManager manager = app.manager;
+
+            assertEquals(port, manager.getByBroker(1, "kafka1", 9092).getProxy().getPort());
+            waitFor(() -> manager.proxies().isEmpty());
+
+            occupied.close();
+            manager.getByBroker(1, "kafka1", 9092);
+            final ProxyChannel channel = manager.proxies().iterator().next();
+            assertEquals(port, channel.getPort());
+        } finally {
+            occupied.close();
+            app.shutdown();
+            app.manager.close();
+        }
+    }
+
+    @Test
+    public void serves_repeated_endpoint_lookups_from_one_channel() throws Exception {
+        final int port = freePort();
+        final TestApplication app = new TestApplication(port);
+        app.start();
+        try {
+            final KafkaProxyChannelManager manager = app.manager;
+
+            final BrokerMapping first = manager.getByBrokerEndpoint(new Endpoint("kafka1", 9092));
+            final BrokerMapping second = manager.getByBrokerEndpoint(new Endpoint("kafka1", 9092));
+
+            assertSame(first, second);
+            assertEquals(port, second.getProxy().getPort());
+            assertEquals(1, manager.proxies().size());
+        } finally {
+            app.shutdown();
+            app.manager.close();
+        }
+    }
+
+    @Test
+    public void keeps_listener_within_grace_period() throws Exception {
+        final TestApplication app = new TestApplication(freePort(), emptyList());
+        app.start();
+        try {
+            final KafkaProxyChannelManager manager = app.manager;
+            manager.getByBrokerEndpoint(new Endpoint("kafka2", 9092));
+
+            assertTrue(manager.reap(System.nanoTime(), GRACE_PERIOD_NANOS).isEmpty());
+            assertEquals(1, manager.proxies().size());
+        } finally {
+            app.shutdown();
+            app.manager.close();
+        }
+    }
+
+    @Test
+    public void reaps_listener_after_grace_period_and_releases_its_port() throws Exception {
+        final TestApplication app = new TestApplication(freePort(), emptyList());
+        app.start();
+        try {
+            final KafkaProxyChannelManager manager = app.manager;
+            final BrokerMapping departed = manager.getByBrokerEndpoint(new Endpoint("kafka2", 9092));
+
+            final List<BrokerMapping> reaped = manager.reap(System.nanoTime() + 2 * GRACE_PERIOD_NANOS,
+                    GRACE_PERIOD_NANOS);
+
+            assertEquals(1, reaped.size());
+            assertEquals(departed.getProxy(), reaped.get(0).getProxy());
+            assertTrue(manager.proxies().isEmpty());
+            assertEquals(departed.getProxy(), manager.getByBrokerEndpoint(new Endpoint("kafka3", 9092)).getProxy());
+        } finally {
+            app.shutdown();
+            app.manager.close();
+        }
+    }
+
+    @Test
+    public void keeps_bootstrap_listener() throws Exception {
+        final TestApplication app = new TestApplication(freePort(), singletonList(new Endpoint("kafka2", 9092)));
+        app.start();
+        try {
+            final KafkaProxyChannelManager manager = app.manager;
+            manager.bootstrap();
+
+            assertTrue(manager.reap(System.nanoTime() + 2 * GRACE_PERIOD_NANOS, GRACE_PERIOD_NANOS).isEmpty());
+            assertEquals(1, manager.proxies().size());
+        } finally {
+            app.shutdown();
+            app.manager.close();
+        }
+    }
+
+    @Test
+    public void keeps_inactive_listener_seen_within_grace_period() throws Exception {
+        final TestApplication app = new TestApplication(freePort(), emptyList());
+        app.start();
+        try {
+            final KafkaProxyChannelManager manager = app.manager;
+            manager.getByBroker(1, "kafka1", 9092);
+            Thread.sleep(NANOSECONDS.toMillis(GRACE_PERIOD_NANOS));
+            manager.getByBroker(1, "kafka1", 9092);
+
+            assertTrue(manager.reap(System.nanoTime() + GRACE_PERIOD_NANOS / 2, GRACE_PERIOD_NANOS).isEmpty());
+            assertEquals(1, manager.reap(System.nanoTime() + 2 * GRACE_PERIOD_NANOS, GRACE_PERIOD_NANOS).size());
+        } finally {
+            app.shutdown();
+            app.manager.close();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (final ServerSocket free = new ServerSocket(0)) {
+            return free.getLocalPort();
+        }
+    }
+
+    private static void waitFor(final BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + SECONDS.toMillis(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue("Condition not met in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static class TestApplication extends ProxyApplication {
+        private final BrokerMapper brokerMapper;
+        private KafkaProxyChannelManager manager;
+
+        private TestApplication(final int proxyPort) throws IOException {
+            this(proxyPort, emptyList());
+        }
+
+        private TestApplication(final int proxyPort, final List<Endpoint> bootstrapBrokers) throws IOException {
+            super(
+                    UpstreamConfig.DISABLED,
+                    DownstreamConfig.DISABLED,
+                    new NullCertificateAuthority(),
+                    ReadBudgetConfig.DEFAULT,
+                    ConnectConfig.DEFAULT,
+                    DnsConfig.DEFAULT,
+                    ConnectionPoolConfig.DISABLED,
+                    SniConfig.DISABLED,
+                    CryptoExecutorConfig.DEFAULT
+            );
+            final BrokerMapEntry entry = new BrokerMapEntry(1, new Endpoint("kafka1", 9092), proxyPort);
+            brokerMapper = new BrokerMapper(new BrokerConfig(
+                    bootstrapBrokers,
+                    "localhost",
+                    proxyPort + 1,
+                    singletonList(entry),
+                    null,
+                    SEQUENTIAL,
+                    1000,
+                    0
+            ), SniConfig.DISABLED);
+        }
+
+        @Override
+        protected Collection<ProxyChannel> initializeProxyChannels(final ProxyChannelFactory proxyChannelFactory) {
+            manager = new KafkaProxyChannelManager(
+                    brokerMapper,
+                    new KafkaProxyChannelFactory(proxyChannelFactory, MultiplexingConfig.DISABLED)
+            );
+            return manager.proxies();
+        }
+    }
+}
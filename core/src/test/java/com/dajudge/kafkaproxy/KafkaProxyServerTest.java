@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy;
+
+import com.dajudge.kafkaproxy.roundtrip.util.TestEnvironment;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class KafkaProxyServerTest {
+    private final TestEnvironment environment = new TestEnvironment()
+            .withEnv("KAFKAPROXY_CLUSTERS", "east,west")
+            .withEnv("KAFKAPROXY_HOSTNAME", "proxy")
+            .withEnv("KAFKAPROXY_CLUSTER_EAST_BOOTSTRAP_SERVERS", "kafka-east:9092")
+            .withEnv("KAFKAPROXY_CLUSTER_EAST_BASE_PORT", "4000")
+            .withEnv("KAFKAPROXY_CLUSTER_WEST_BOOTSTRAP_SERVERS", "kafka-west:9092");
+
+    @Test
+    public void rejects_clusters_sharing_a_broker_journal() {
+        assertRejected("KAFKAPROXY_BROKER_JOURNAL_FILE", environment
+                .withEnv("KAFKAPROXY_CLUSTER_WEST_BASE_PORT", "5000")
+                .withEnv("KAFKAPROXY_BROKER_JOURNAL_FILE", "journal.yaml"));
+    }
+
+    @Test
+    public void rejects_clusters_sharing_a_base_port() {
+        assertRejected("KAFKAPROXY_BASE_PORT", environment.withEnv("KAFKAPROXY_BASE_PORT", "4000")
+                .withEnv("KAFKAPROXY_CLUSTER_WEST_BASE_PORT", "4000"));
+    }
+
+    @Test
+    public void rejects_clusters_sharing_a_normalized_broker_journal() {
+        assertRejected("KAFKAPROXY_BROKER_JOURNAL_FILE", environment
+                .withEnv("KAFKAPROXY_CLUSTER_WEST_BASE_PORT", "5000")
+                .withEnv("KAFKAPROXY_CLUSTER_EAST_BROKER_JOURNAL_FILE", "journal.yaml")
+                .withEnv("KAFKAPROXY_CLUSTER_WEST_BROKER_JOURNAL_FILE", "./data/../journal.yaml"));
+    }
+
+    @Test
+    public void rejects_overlapping_port_ranges() {
+        assertRejected("KAFKAPROXY_BASE_PORT 4010-5009", environment
+                .withEnv("KAFKAPROXY_CLUSTER_WEST_BASE_PORT", "4010"));
+    }
+
+    @Test
+    public void rejects_bootstrap_listeners_of_node_id_assignment_in_other_port_range() {
+        assertRejected("KAFKAPROXY_BASE_PORT 4000-5000", environment
+                .withEnv("KAFKAPROXY_CLUSTER_EAST_BROKER_PORT_ASSIGNMENT", "NODE_ID")
+                .withEnv("KAFKAPROXY_CLUSTER_WEST_BASE_PORT", "5000"));
+    }
+
+    @Test
+    public void rejects_bootstrap_port_in_other_port_range() {
+        assertRejected("KAFKAPROXY_BOOTSTRAP_PORT 5000", environment
+                .withEnv("KAFKAPROXY_CLUSTER_EAST_BOOTSTRAP_PORT", "5000")
+                .withEnv("KAFKAPROXY_CLUSTER_WEST_BASE_PORT", "5000"));
+    }
+
+    @Test
+    public void rejects_broker_map_port_in_other_port_range() {
+        assertRejected("KAFKAPROXY_BROKER_MAP_FILE 5005", environment
+                .withEnv("KAFKAPROXY_CLUSTER_EAST_BROKER_MAP_FILE", "east.yaml")
+                .withFile("east.yaml", "kafka-east:9092: 5005\n".getBytes(UTF_8))
+                .withEnv("KAFKAPROXY_CLUSTER_WEST_BASE_PORT", "5000"));
+    }
+
+    @Test
+    public void rejects_clusters_sharing_an_sni_port() {
+        assertRejected("KAFKAPROXY_SNI_PORT 9093", environment
+                .withEnv("KAFKAPROXY_SNI_PORT", "9093")
+                .withEnv("KAFKAPROXY_SNI_HOSTNAME_PATTERN", "broker-{id}.proxy")
+                .withEnv("KAFKAPROXY_CLUSTER_WEST_BASE_PORT", "5000"));
+    }
+
+    private static void assertRejected(final String variable, final TestEnvironment environment) {
+        try {
+            KafkaProxyServer.create(environment);
+            fail("Expected an IllegalArgumentException");
+        } catch (final IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(variable));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy.config;
+
+import com.dajudge.kafkaproxy.roundtrip.util.TestEnvironment;
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+public class ClusterEnvironmentTest {
+    private final TestEnvironment environment = new TestEnvironment()
+            .withEnv("KAFKAPROXY_BASE_PORT", "4000")
+            .withEnv("KAFKAPROXY_HOSTNAME", "proxy")
+            .withEnv("KAFKAPROXY_CLUSTER_US_EAST_BASE_PORT", "5000");
+
+    @Test
+    public void prefers_cluster_variables() {
+        final Environment cluster = new ClusterEnvironment(environment, "us-east");
+
+        assertEquals(5000, cluster.requiredInt("KAFKAPROXY_BASE_PORT"));
+    }
+
+    @Test
+    public void falls_back_to_shared_variables() {
+        final Environment cluster = new ClusterEnvironment(environment, "us-east");
+        final Environment other = new ClusterEnvironment(environment, "eu-west");
+
+        assertEquals("proxy", cluster.requiredString("KAFKAPROXY_HOSTNAME"));
+        assertEquals(4000, other.requiredInt("KAFKAPROXY_BASE_PORT"));
+    }
+
+    @Test
+    public void derives_prefix_independent_of_locale() {
+        final Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            final Environment cluster = new ClusterEnvironment(
+                    new TestEnvironment().withEnv("KAFKAPROXY_CLUSTER_VIDEO_BASE_PORT", "6000"),
+                    "video"
+            );
+
+            assertEquals(6000, cluster.requiredInt("KAFKAPROXY_BASE_PORT"));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.kafkaproxy.protocol;
+
+import com.dajudge.kafkaproxy.protocol.rewrite.ResponseRewriter;
+import com.dajudge.proxybase.DownstreamSinkFactory;
+import com.dajudge.proxybase.Sink;
+import com.dajudge.proxybase.ca.KeyStoreWrapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.requests.RequestHeader;
+import org.apache.kafka.common.requests.ResponseHeader;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static io.netty.buffer.Unpooled.buffer;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class KafkaMultiplexerTest {
+    private static final ResponseRewriter NO_REWRITE = new ResponseRewriter() {
+        @Override
+        public boolean appliesTo(final RequestHeader requestHeader) {
+            return false;
+        }
+
+        @Override
+        public Optional<ByteBuf> rewrite(
+                final RequestHeader requestHeader,
+                final ResponseHeader responseHeader,
+                final ByteBuffer responseBuffer
+        ) {
+            return Optional.empty();
+        }
+    };
+
+    private final FakeBroker broker = new FakeBroker();
+    private final KafkaMultiplexer multiplexer = new KafkaMultiplexer(broker, NO_REWRITE, 1);
+
+    @Test
+    public void routes_responses_to_clients() {
+        final RecordingSink clientA = new RecordingSink();
+        final RecordingSink clientB = new RecordingSink();
+        final Sink<ByteBuf> requestsA = multiplexer.create(clientA, null);
+        final Sink<ByteBuf> requestsB = multiplexer.create(clientB, null);
+
+        requestsA.accept(apiVersionsRequest(1));
+        requestsB.accept(apiVersionsRequest(1));
+
+        assertEquals(1, broker.connections);
+        assertEquals(2, broker.requests.size());
+        final int brokerCorrelationIdA = correlationId(broker.requests.get(0));
+        final int brokerCorrelationIdB = correlationId(broker.requests.get(1));
+        assertNotEquals(brokerCorrelationIdA, brokerCorrelationIdB);
+
+        broker.responses.accept(apiVersionsResponse(brokerCorrelationIdB, (short) 2));
+        broker.responses.accept(apiVersionsResponse(brokerCorrelationIdA, (short) 1));
+
+        assertEquals(1, clientA.buffers.size());
+        assertEquals(1, clientA.buffers.get(0).getInt(4));
+        assertEquals(1, clientA.buffers.get(0).getShort(8));
+        assertEquals(1, clientB.buffers.size());
+        assertEquals(1, clientB.buffers.get(0).getInt(4));
+        assertEquals(2, clientB.buffers.get(0).getShort(8));
+    }
+
+    @Test
+    public void forwards_produce_requests_without_acks_unchanged() {
+        final Sink<ByteBuf> requests = multiplexer.create(new RecordingSink(), null);
+
+        requests.accept(produceRequestWithoutAcks(42));
+
+        assertEquals(1, broker.requests.size());
+        assertEquals(42, correlationId(broker.requests.get(0)));
+    }
+
+    @Test
+    public void closes_clients_when_broker_connection_closes() {
+        final RecordingSink client = new RecordingSink();
+        multiplexer.create(client, null).accept(apiVersionsRequest(1));
+
+        broker.responses.close();
+
+        assertEquals(1, client.closed);
+        multiplexer.create(new RecordingSink(), null).accept(apiVersionsRequest(1));
+        assertEquals(2, broker.connections);
+    }
+
+    @Test
+    public void closes_only_client_failing_to_process_response() {
+        final RecordingSink failingClient = new RecordingSink() {
+            @Override
+            public void accept(final ByteBuf buffer) {
+                throw new IllegalStateException("Failed to process response");
+            }
+        };
+        final RecordingSink client = new RecordingSink();
+        multiplexer.create(failingClient, null).accept(apiVersionsRequest(1));
+        multiplexer.create(client, null).accept(apiVersionsRequest(1));
+
+        broker.responses.accept(apiVersionsResponse(correlationId(broker.requests.get(0)), (short) 0));
+        broker.responses.accept(apiVersionsResponse(correlationId(broker.requests.get(1)), (short) 0));
+
+        assertEquals(1, failingClient.closed);
+        assertEquals(0, client.closed);
+        assertEquals(1, client.buffers.size());
+        assertEquals(1, broker.connections);
+    }
+
+    private static int correlationId(final ByteBuf request) {
+        return request.getInt(8);
+    }
+
+    private static ByteBuf apiVersionsRequest(final int correlationId) {
+        return frame(header(ApiKeys.API_VERSIONS, 0, correlationId));
+    }
+
+    private static ByteBuf produceRequestWithoutAcks(final int correlationId) {
+        return frame(header(ApiKeys.PRODUCE, 3, correlationId)
+                .writeShort(-1) // transactional_id
+                .writeShort(0) // acks
+                .writeInt(1000) // timeout
+                .writeInt(0)); // topic_data
+    }
+
+    private static ByteBuf apiVersionsResponse(final int correlationId, final short errorCode) {
+        return frame(buffer().writeInt(correlationId).writeShort(errorCode).writeInt(0));
+    }
+
+    private static ByteBuf header(final ApiKeys apiKey, final int apiVersion, final int correlationId) {
+        final byte[] clientId = "test".getBytes(UTF_8);
+        return buffer()
+                .writeShort(apiKey.id)
+                .writeShort(apiVersion)
+                .writeInt(correlationId)
+                .writeShort(clientId.length)
+                .writeBytes(clientId);
+    }
+
+    private static ByteBuf frame(final ByteBuf payload) {
+        return buffer().writeInt(payload.readableBytes()).writeBytes(payload);
+    }
+
+    private static class FakeBroker implements DownstreamSinkFactory {
+        private final List<ByteBuf> requests = new ArrayList<>();
+        private Sink<ByteBuf> responses;
+        private int connections;
+
+        @Override
+        public Sink<ByteBuf> create(final Sink<ByteBuf> upstreamSink, final Future<KeyStoreWrapper> clientIdentity) {
+            connections++;
+            responses = upstreamSink;
+            return new RecordingSink() {
+                @Override
+                public void accept(final ByteBuf buffer) {
+                    requests.add(buffer.retain());
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class RecordingSink implements Sink<ByteBuf> {
+        private final List<ByteBuf> buffers = new ArrayList<>();
+        private int closed;
+
+        @Override
+        public void accept(final ByteBuf buffer) {
+            buffers.add(buffer.retain());
+        }
+
+        @Override
+        public Future<?> close() {
+            closed++;
+            return ImmediateEventExecutor.INSTANCE.newSucceededFuture(null);
+        }
+    }
+}
@@ -71,6 +71,11 @@ public class TestEnvironment implements Environment {
         return parseInt(requiredString(variable));
     }
 
+    @Override
+    public int requiredInt(final String variable, final int defaultValue) {
+        return optionalString(variable).map(Integer::parseInt).orElse(defaultValue);
+    }
+
     @Override
     public FileResource requiredFile(final String filename) {
         if (!files.containsKey(filename)) {
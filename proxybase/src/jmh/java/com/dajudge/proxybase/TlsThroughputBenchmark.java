@@ -0,0 +1,244 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.ca.NullCertificateAuthority;
+import com.dajudge.proxybase.config.ConnectConfig;
+import com.dajudge.proxybase.config.ConnectionPoolConfig;
+import com.dajudge.proxybase.config.CryptoExecutorConfig;
+import com.dajudge.proxybase.config.DnsConfig;
+import com.dajudge.proxybase.config.DownstreamConfig;
+import com.dajudge.proxybase.config.Endpoint;
+import com.dajudge.proxybase.config.ReadBudgetConfig;
+import com.dajudge.proxybase.config.SniConfig;
+import com.dajudge.proxybase.config.SslSessionConfig;
+import com.dajudge.proxybase.config.TlsProvider;
+import com.dajudge.proxybase.config.UpstreamConfig;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.netty.util.concurrent.Future;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.util.Collection;
+import java.util.Random;
+
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Measures the round trip throughput of a TLS client talking to a TLS broker through the proxy over loopback,
+ * for each combination of TLS engines on the client and broker legs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+public class TlsThroughputBenchmark {
+    private static final String PASSWORD = "changeit";
+    private static final int PAYLOAD_SIZE = 64 * 1024;
+
+    @Param({"JDK", "OPENSSL"})
+    public TlsProvider upstreamProvider;
+
+    @Param({"JDK", "OPENSSL"})
+    public TlsProvider downstreamProvider;
+
+    private final byte[] payload = new byte[PAYLOAD_SIZE];
+    private final byte[] response = new byte[PAYLOAD_SIZE];
+    private NioEventLoopGroup brokerGroup;
+    private Channel broker;
+    private BenchmarkProxyApplication proxy;
+    private SSLSocket client;
+    private DataInputStream clientIn;
+
+    @Setup
+    public void setup() throws Exception {
+        new Random(42).nextBytes(payload);
+        final SelfSignedCertificate certificate = new SelfSignedCertificate();
+        final byte[] jks = keyStore(certificate);
+        brokerGroup = new NioEventLoopGroup(1);
+        broker = startBroker(certificate);
+        final Endpoint brokerEndpoint = new Endpoint(
+                "localhost",
+                ((InetSocketAddress) broker.localAddress()).getPort()
+        );
+        proxy = new BenchmarkProxyApplication(
+                new UpstreamConfig(
+                        true,
+                        () -> new ByteArrayInputStream(jks),
+                        PASSWORD,
+                        () -> new ByteArrayInputStream(jks),
+                        PASSWORD,
+                        PASSWORD,
+                        false,
+                        upstreamProvider,
+                        SslSessionConfig.DEFAULT
+                ),
+                new DownstreamConfig(
+                        true,
+                        () -> new ByteArrayInputStream(jks),
+                        PASSWORD,
+                        false,
+                        16,
+                        downstreamProvider
+                ),
+                brokerEndpoint
+        );
+        proxy.start();
+        final SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, InsecureTrustManagerFactory.INSTANCE.getTrustManagers(), null);
+        client = (SSLSocket) sslContext.getSocketFactory().createSocket("localhost", proxy.getPort());
+        client.setSoTimeout((int) SECONDS.toMillis(10));
+        clientIn = new DataInputStream(client.getInputStream());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        proxy.shutdown();
+        broker.close().syncUninterruptibly();
+        brokerGroup.shutdownGracefully().syncUninterruptibly();
+    }
+
+    @Benchmark
+    public byte[] roundTrip() throws IOException {
+        client.getOutputStream().write(payload);
+        client.getOutputStream().flush();
+        clientIn.readFully(response);
+        return response;
+    }
+
+    private Channel startBroker(final SelfSignedCertificate certificate) throws Exception {
+        final SslContext sslContext = SslContextBuilder
+                .forServer(certificate.certificate(), certificate.privateKey())
+                .build();
+        return new ServerBootstrap()
+                .group(brokerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(final SocketChannel ch) {
+                        ch.pipeline().addLast(sslContext.newHandler(ch.alloc()));
+                        ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                            @Override
+                            public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+                                ctx.writeAndFlush(msg);
+                            }
+                        });
+                    }
+                })
+                .bind("localhost", 0)
+                .sync()
+                .channel();
+    }
+
+    private static byte[] keyStore(final SelfSignedCertificate certificate) throws Exception {
+        final KeyStore keyStore = KeyStore.getInstance("jks");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry("proxy", certificate.key(), PASSWORD.toCharArray(), new Certificate[]{
+                certificate.cert()
+        });
+        keyStore.setCertificateEntry("broker", certificate.cert());
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        keyStore.store(bos, PASSWORD.toCharArray());
+        return bos.toByteArray();
+    }
+
+    private static class BenchmarkProxyApplication extends ProxyApplication {
+        private static final FilterFactory<ByteBuf> COPYING_FILTER = sink -> new Sink<ByteBuf>() {
+            @Override
+            public Future<?> close() {
+                return sink.close();
+            }
+
+            @Override
+            public void accept(final ByteBuf buffer) {
+                final ByteBuf copy = buffer.copy();
+                try {
+                    sink.accept(copy);
+                } finally {
+                    copy.release();
+                }
+            }
+        };
+        private final Endpoint brokerEndpoint;
+        private ProxyChannel proxyChannel;
+
+        private BenchmarkProxyApplication(
+                final UpstreamConfig upstreamConfig,
+                final DownstreamConfig downstreamConfig,
+                final Endpoint brokerEndpoint
+        ) {
+            super(
+                    upstreamConfig,
+                    downstreamConfig,
+                    new NullCertificateAuthority(),
+                    ReadBudgetConfig.DEFAULT,
+                    ConnectConfig.DEFAULT,
+                    DnsConfig.DEFAULT,
+                    ConnectionPoolConfig.DISABLED,
+                    SniConfig.DISABLED,
+                    CryptoExecutorConfig.DEFAULT
+            );
+            this.brokerEndpoint = brokerEndpoint;
+        }
+
+        @Override
+        protected Collection<ProxyChannel> initializeProxyChannels(final ProxyChannelFactory proxyChannelFactory) {
+            proxyChannel = proxyChannelFactory.createProxyChannel(
+                    new Endpoint("localhost", 0),
+                    brokerEndpoint,
+                    COPYING_FILTER,
+                    COPYING_FILTER
+            );
+            proxyChannel.start().syncUninterruptibly();
+            return singletonList(proxyChannel);
+        }
+
+        private int getPort() {
+            return proxyChannel.getPort();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.config.SslSessionConfig;
+import com.dajudge.proxybase.config.TlsProvider;
+import com.dajudge.proxybase.config.UpstreamConfig;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandler;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Measures the SSL setup cost of accepting an upstream connection, with the SSL context rebuilt for every
+ * connection versus one SSL context shared by all connections of a listener.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+public class UpstreamSslAcceptBenchmark {
+    private static final String PASSWORD = "changeit";
+    private UpstreamConfig config;
+    private ProxySslHandlerFactory sharedFactory;
+
+    @Setup
+    public void setup() throws Exception {
+        final SelfSignedCertificate certificate = new SelfSignedCertificate();
+        final KeyStore keyStore = KeyStore.getInstance("jks");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry("proxy", certificate.key(), PASSWORD.toCharArray(), new Certificate[]{
+                certificate.cert()
+        });
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        keyStore.store(bos, PASSWORD.toCharArray());
+        final byte[] jks = bos.toByteArray();
+        config = new UpstreamConfig(
+                true,
+                () -> new ByteArrayInputStream(jks),
+                PASSWORD,
+                () -> new ByteArrayInputStream(jks),
+                PASSWORD,
+                PASSWORD,
+                false,
+                TlsProvider.JDK,
+                SslSessionConfig.DEFAULT
+        );
+        sharedFactory = new ProxySslHandlerFactory(config);
+    }
+
+    @Benchmark
+    public ChannelHandler contextPerConnection() {
+        return new ProxySslHandlerFactory(config).createSslHandler(ByteBufAllocator.DEFAULT);
+    }
+
+    @Benchmark
+    public ChannelHandler sharedContext() {
+        return sharedFactory.createSslHandler(ByteBufAllocator.DEFAULT);
+    }
+}
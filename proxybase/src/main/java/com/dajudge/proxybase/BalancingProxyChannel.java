@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.config.Endpoint;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+class BalancingProxyChannel extends ProxyListener {
+    private static final Logger LOG = LoggerFactory.getLogger(BalancingProxyChannel.class);
+    private final Supplier<Collection<ProxyChannel>> targets;
+
+    BalancingProxyChannel(
+            final Endpoint endpoint,
+            final ProxySslHandlerFactory sslHandlerFactory,
+            final NioEventLoopGroup bossGroup,
+            final NioEventLoopGroup upstreamWorkerGroup,
+            final RecvByteBufAllocator recvByteBufAllocator,
+            final Supplier<Collection<ProxyChannel>> targets
+    ) {
+        super(endpoint, sslHandlerFactory, bossGroup, upstreamWorkerGroup, recvByteBufAllocator, null);
+        this.targets = targets;
+    }
+
+    @Override
+    ChannelHandler createUpstreamHandler(final SocketChannel ch) {
+        final ProxyChannel target = selectTarget(new ArrayList<>(targets.get()));
+        if (target == null) {
+            LOG.warn("No target available for connection from {}", ch.remoteAddress());
+            ch.close();
+            return new ChannelInboundHandlerAdapter();
+        }
+        LOG.trace("Forwarding connection from {} via {}", ch.remoteAddress(), target.getEndpoint());
+        return target.createUpstreamHandler(ch);
+    }
+
+    static ProxyChannel selectTarget(final List<ProxyChannel> candidates) {
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        final int offset = ThreadLocalRandom.current().nextInt(candidates.size());
+        ProxyChannel best = null;
+        boolean bestHealthy = false;
+        int bestLoad = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            final ProxyChannel candidate = candidates.get((offset + i) % candidates.size());
+            final boolean healthy = candidate.isHealthy();
+            final int load = candidate.getActiveConnections();
+            if (best == null || (healthy && !bestHealthy) || (healthy == bestHealthy && load < bestLoad)) {
+                best = candidate;
+                bestHealthy = healthy;
+                bestLoad = load;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.config.DnsConfig;
+import io.netty.channel.EventLoop;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.resolver.AddressResolver;
+import io.netty.resolver.NameResolver;
+import io.netty.resolver.dns.DefaultDnsCache;
+import io.netty.resolver.dns.DnsAddressResolverGroup;
+import io.netty.resolver.dns.DnsNameResolverBuilder;
+import io.netty.resolver.dns.DnsServerAddressStreamProvider;
+import io.netty.resolver.dns.DnsServerAddressStreamProviders;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+class CachingAddressResolverGroup extends DnsAddressResolverGroup {
+    CachingAddressResolverGroup(final DnsConfig dnsConfig) {
+        this(dnsConfig, DnsServerAddressStreamProviders.platformDefault());
+    }
+
+    CachingAddressResolverGroup(final DnsConfig dnsConfig, final DnsServerAddressStreamProvider nameServers) {
+        super(new DnsNameResolverBuilder()
+                .channelType(NioDatagramChannel.class)
+                .nameServerProvider(nameServers)
+                .resolveCache(new MeteredDnsCache(new DefaultDnsCache(
+                        dnsConfig.getMinTtl(),
+                        dnsConfig.getMaxTtl(),
+                        dnsConfig.getNegativeTtl()
+                ))));
+    }
+
+    @Override
+    protected AddressResolver<InetSocketAddress> newAddressResolver(
+            final EventLoop eventLoop,
+            final NameResolver<InetAddress> resolver
+    ) throws Exception {
+        return super.newAddressResolver(eventLoop, new TimedNameResolver(resolver));
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.config.Endpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+class CircuitBreaker {
+    private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+    private final Endpoint endpoint;
+    private final int failureThreshold;
+    private final long openNanos;
+    private int consecutiveFailures;
+    private long openUntil;
+    private boolean probing;
+
+    CircuitBreaker(final Endpoint endpoint, final int failureThreshold, final int openMillis) {
+        this.endpoint = endpoint;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = MILLISECONDS.toNanos(openMillis);
+    }
+
+    synchronized boolean tryAcquire() {
+        if (failureThreshold == 0 || consecutiveFailures < failureThreshold) {
+            return true;
+        }
+        if (probing || System.nanoTime() - openUntil < 0) {
+            return false;
+        }
+        LOG.debug("Probing connection to {}", endpoint);
+        probing = true;
+        return true;
+    }
+
+    synchronized boolean isClosed() {
+        return failureThreshold == 0 || consecutiveFailures < failureThreshold;
+    }
+
+    synchronized void onSuccess() {
+        if (failureThreshold > 0 && consecutiveFailures >= failureThreshold) {
+            LOG.info("Connection to {} recovered, closing circuit breaker.", endpoint);
+        }
+        consecutiveFailures = 0;
+        probing = false;
+    }
+
+    // The connection attempt was abandoned by the client, so it tells nothing about the broker
+    synchronized void onCancel() {
+        probing = false;
+    }
+
+    synchronized void onFailure() {
+        if (failureThreshold == 0) {
+            return;
+        }
+        consecutiveFailures++;
+        probing = false;
+        if (consecutiveFailures >= failureThreshold) {
+            if (consecutiveFailures == failureThreshold) {
+                LOG.warn("Opening circuit breaker for {} after {} failed connection attempts.",
+                        endpoint, consecutiveFailures);
+            }
+            openUntil = System.nanoTime() + openNanos;
+        }
+    }
+}
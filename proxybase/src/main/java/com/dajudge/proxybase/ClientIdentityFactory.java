@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.ca.CertificateAuthority;
+import com.dajudge.proxybase.ca.KeyStoreWrapper;
+import com.dajudge.proxybase.ca.UpstreamCertificateSupplier;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.PromiseNotifier;
+
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+import static io.netty.util.concurrent.ImmediateEventExecutor.INSTANCE;
+
+class ClientIdentityFactory {
+    private static final UpstreamCertificateSupplier NO_CERTIFICATE = () -> {
+        throw new SSLPeerUnverifiedException("No upstream certificate available");
+    };
+    private final CertificateAuthority certificateAuthority;
+    private final CryptoExecutor cryptoExecutor;
+    private final KeyStoreWrapper staticIdentity;
+
+    ClientIdentityFactory(final CertificateAuthority certificateAuthority, final CryptoExecutor cryptoExecutor) {
+        this.certificateAuthority = certificateAuthority;
+        this.cryptoExecutor = cryptoExecutor;
+        this.staticIdentity = certificateAuthority.hasStaticIdentity()
+                ? createClientCertificate(NO_CERTIFICATE)
+                : null;
+    }
+
+    KeyStoreWrapper getStaticIdentity() {
+        return staticIdentity;
+    }
+
+    Future<KeyStoreWrapper> create(final Future<UpstreamCertificateSupplier> upstreamHandshake) {
+        if (staticIdentity != null) {
+            return INSTANCE.newSucceededFuture(staticIdentity);
+        }
+        final Promise<KeyStoreWrapper> identity = INSTANCE.newPromise();
+        upstreamHandshake.addListener((FutureListener<UpstreamCertificateSupplier>) handshake -> {
+            if (!handshake.isSuccess()) {
+                identity.tryFailure(handshake.cause());
+                return;
+            }
+            final UpstreamCertificateSupplier certSupplier = handshake.getNow();
+            cryptoExecutor.submit(() -> createClientCertificate(certSupplier))
+                    .addListener(new PromiseNotifier<>(identity));
+        });
+        return identity;
+    }
+
+    private KeyStoreWrapper createClientCertificate(final UpstreamCertificateSupplier certSupplier) {
+        try {
+            return certificateAuthority.createClientCertificate(certSupplier);
+        } catch (final SSLPeerUnverifiedException e) {
+            throw new RuntimeException("Client did not provide valid certificate", e);
+        }
+    }
+}
@@ -20,8 +20,15 @@ package com.dajudge.proxybase;
 import com.dajudge.proxybase.ca.KeyStoreWrapper;
 import com.dajudge.proxybase.config.DownstreamConfig;
 import com.dajudge.proxybase.config.Endpoint;
+import com.dajudge.proxybase.metrics.Counter;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelHandler;
-import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.ClientAuth;
+import io.netty.handler.ssl.JdkSslContext;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.util.concurrent.Future;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,37 +37,95 @@ import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 
+import static com.dajudge.proxybase.metrics.Metrics.counter;
+import static io.netty.util.concurrent.ImmediateEventExecutor.INSTANCE;
 import static java.util.stream.Collectors.toList;
 
 class ClientSslHandlerFactory {
     private static final Logger LOG = LoggerFactory.getLogger(ClientSslHandlerFactory.class);
+    private final Counter hits = counter("downstream_ssl_context_hits");
+    private final Counter misses = counter("downstream_ssl_context_misses");
+    private final SslHandshakeCounter handshakes = new SslHandshakeCounter("downstream");
+    private final DownstreamConfig config;
+    private final CryptoExecutor cryptoExecutor;
+    private final SslProvider provider;
+    private final List<X509TrustManager> trustManagers;
+    private final Map<ContextKey, SslContext> contexts;
+    private final Map<ContextKey, Future<SslContext>> pending = new HashMap<>();
 
-    static ChannelHandler createHandler(
-            final DownstreamConfig config,
-            final Endpoint endpoint,
-            final KeyStoreWrapper keyStore
-    ) {
-        return config.isEnabled()
-                ? createHandlerInternal(config, endpoint, keyStore)
-                : new NullChannelHandler();
+    ClientSslHandlerFactory(final DownstreamConfig config, final CryptoExecutor cryptoExecutor) {
+        this.config = config;
+        this.cryptoExecutor = cryptoExecutor;
+        this.provider = config.isEnabled() ? SslProviders.select(config.getProvider()) : SslProvider.JDK;
+        this.trustManagers = config.isEnabled() ? createDefaultTrustManagers(config) : null;
+        final int cacheSize = config.getSslContextCacheSize();
+        this.contexts = new LinkedHashMap<ContextKey, SslContext>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<ContextKey, SslContext> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    Future<SslContext> getContext(final Endpoint endpoint, final KeyStoreWrapper keyStore) {
+        final ContextKey key = new ContextKey(endpoint, keyStore);
+        final Future<SslContext> build;
+        synchronized (contexts) {
+            final SslContext cached = contexts.get(key);
+            if (cached != null) {
+                hits.increment();
+                return INSTANCE.newSucceededFuture(cached);
+            }
+            final Future<SslContext> inFlight = pending.get(key);
+            if (inFlight != null) {
+                // Another connection is already building the same context, share it
+                hits.increment();
+                return inFlight;
+            }
+            misses.increment();
+            build = cryptoExecutor.submit(() -> {
+                try {
+                    final SslContext created = createContext(endpoint, keyStore);
+                    synchronized (contexts) {
+                        contexts.put(key, created);
+                    }
+                    return created;
+                } finally {
+                    synchronized (contexts) {
+                        pending.remove(key);
+                    }
+                }
+            });
+            // A rejected build has already failed and must not be shared
+            if (!build.isDone()) {
+                pending.put(key, build);
+            }
+        }
+        return build;
     }
 
-    private static ChannelHandler createHandlerInternal(
-            final DownstreamConfig config,
-            final Endpoint endpoint,
-            final KeyStoreWrapper keyStore
-    ) {
+    ChannelHandler createHandler(final Endpoint endpoint, final SslContext context, final ByteBufAllocator alloc) {
+        return handshakes.count(context.newHandler(alloc, endpoint.getHost(), endpoint.getPort()));
+    }
+
+    private SslContext createContext(final Endpoint endpoint, final KeyStoreWrapper keyStore) {
         try {
-            LOG.info("Creating client SSL handler for {}", endpoint);
-            final SSLContext clientContext = SSLContext.getInstance("TLS");
+            LOG.info("Creating client SSL context for {} using {}", endpoint, provider);
             final HostnameCheck hostnameCheck = config.isHostnameVerificationEnabled()
                     ? new HttpClientHostnameCheck(endpoint.getHost())
                     : HostnameCheck.NULL_VERIFIER;
-            final TrustManager[] trustManagers = {
-                    new HostCheckingTrustManager(createDefaultTrustManagers(config), hostnameCheck)
+            final TrustManager[] hostCheckingTrustManagers = {
+                    new HostCheckingTrustManager(trustManagers, hostnameCheck)
             };
             final KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(
                     KeyManagerFactory.getDefaultAlgorithm()
@@ -68,17 +133,23 @@ class ClientSslHandlerFactory {
             if (keyStore != null) {
                 keyManagerFactory.init(keyStore.getKeyStore(), keyStore.getKeyPassword().toCharArray());
             }
-            final KeyManager[] keyManagers = keyManagerFactory.getKeyManagers();
-            clientContext.init(keyManagers, trustManagers, null);
-            final SSLEngine engine = clientContext.createSSLEngine(endpoint.getHost(), endpoint.getPort());
-            engine.setUseClientMode(true);
-            return new SslHandler(engine);
+            if (provider == SslProvider.OPENSSL) {
+                return SslContextBuilder.forClient()
+                        .keyManager(keyStore != null ? keyManagerFactory : null)
+                        .trustManager(SslProviders.trustManagerFactory(hostCheckingTrustManagers))
+                        .sslProvider(provider)
+                        .build();
+            }
+            final SSLContext clientContext = SSLContext.getInstance("TLS");
+            clientContext.init(keyManagerFactory.getKeyManagers(), hostCheckingTrustManagers, null);
+            return new JdkSslContext(clientContext, true, ClientAuth.NONE);
         } catch (final NoSuchAlgorithmException
                 | KeyManagementException
                 | KeyStoreException
-                | UnrecoverableKeyException e
+                | UnrecoverableKeyException
+                | SSLException e
         ) {
-            throw new RuntimeException("Failed to initialize downstream SSL handler", e);
+            throw new RuntimeException("Failed to initialize downstream SSL context", e);
         }
     }
 
@@ -88,4 +159,31 @@ class ClientSslHandlerFactory {
                 downstreamConfig.getTrustStorePassword().toCharArray()
         ))).map(it -> (X509TrustManager) it).collect(toList());
     }
+
+    private static final class ContextKey {
+        private final Endpoint endpoint;
+        private final KeyStoreWrapper keyStore;
+
+        private ContextKey(final Endpoint endpoint, final KeyStoreWrapper keyStore) {
+            this.endpoint = endpoint;
+            this.keyStore = keyStore;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ContextKey)) {
+                return false;
+            }
+            final ContextKey other = (ContextKey) o;
+            return endpoint.equals(other.endpoint) && keyStore == other.keyStore;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * endpoint.hashCode() + System.identityHashCode(keyStore);
+        }
+    }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.config.CryptoExecutorConfig;
+import com.dajudge.proxybase.metrics.Counter;
+import com.dajudge.proxybase.metrics.Gauge;
+import com.dajudge.proxybase.metrics.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.LongSupplier;
+
+import static com.dajudge.proxybase.metrics.Metrics.counter;
+import static com.dajudge.proxybase.metrics.Metrics.gauge;
+import static com.dajudge.proxybase.metrics.Metrics.timer;
+import static io.netty.util.concurrent.ImmediateEventExecutor.INSTANCE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+class CryptoExecutor {
+    private final Counter rejections = counter("crypto_rejections");
+    private final Timer tasks = timer("crypto_tasks");
+    private final Gauge queueDepthGauge = gauge("crypto_queue_depth");
+    private final Gauge activeTasksGauge = gauge("crypto_active_tasks");
+    private final ThreadPoolExecutor executor;
+    private final LongSupplier queueDepth;
+    private final LongSupplier activeTasks;
+
+    CryptoExecutor(final CryptoExecutorConfig config) {
+        final BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(config.getQueueSize());
+        executor = new ThreadPoolExecutor(
+                config.getThreads(),
+                config.getThreads(),
+                0,
+                MILLISECONDS,
+                queue,
+                new DefaultThreadFactory("crypto", true)
+        );
+        queueDepth = queue::size;
+        activeTasks = executor::getActiveCount;
+        queueDepthGauge.add(queueDepth);
+        activeTasksGauge.add(activeTasks);
+    }
+
+    <T> Future<T> submit(final Callable<T> task) {
+        final Promise<T> promise = INSTANCE.newPromise();
+        try {
+            executor.execute(() -> {
+                final long start = System.nanoTime();
+                try {
+                    promise.trySuccess(task.call());
+                } catch (final Exception e) {
+                    promise.tryFailure(e);
+                } finally {
+                    tasks.record(System.nanoTime() - start);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            rejections.increment();
+            promise.tryFailure(e);
+        }
+        return promise;
+    }
+
+    void shutdown() {
+        queueDepthGauge.remove(queueDepth);
+        activeTasksGauge.remove(activeTasks);
+        executor.shutdown();
+    }
+}
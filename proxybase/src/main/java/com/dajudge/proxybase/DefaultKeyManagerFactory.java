@@ -33,13 +33,21 @@ class DefaultKeyManagerFactory {
             final Supplier<InputStream> keyStore,
             final char[] keyStorePassword,
             final char[] keyPassword
+    ) {
+        return createKeyManagerFactory(keyStore, keyStorePassword, keyPassword).getKeyManagers();
+    }
+
+    static KeyManagerFactory createKeyManagerFactory(
+            final Supplier<InputStream> keyStore,
+            final char[] keyStorePassword,
+            final char[] keyPassword
     ) {
         try (final InputStream inputStream = keyStore.get()) {
             final KeyManagerFactory factory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
             final KeyStore keystore = KeyStore.getInstance("jks");
             keystore.load(inputStream, keyStorePassword);
             factory.init(keystore, keyPassword);
-            return factory.getKeyManagers();
+            return factory;
         } catch (final UnrecoverableKeyException | KeyStoreException | IOException | NoSuchAlgorithmException | CertificateException e) {
             throw new RuntimeException("Failed to setup key manager", e);
         }
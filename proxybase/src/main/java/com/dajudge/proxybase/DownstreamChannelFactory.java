@@ -18,38 +18,63 @@
 package com.dajudge.proxybase;
 
 import com.dajudge.proxybase.ca.KeyStoreWrapper;
-import com.dajudge.proxybase.config.DownstreamConfig;
+import com.dajudge.proxybase.config.ConnectConfig;
 import com.dajudge.proxybase.config.Endpoint;
 import io.netty.buffer.ByteBuf;
-import io.netty.channel.EventLoopGroup;
+import io.netty.channel.Channel;
+import io.netty.util.concurrent.Future;
 
-class DownstreamChannelFactory {
-    private final Endpoint endpoint;
-    private final DownstreamConfig sslConfig;
-    private final EventLoopGroup downstreamWorkerGroup;
+class DownstreamChannelFactory implements DownstreamSinkFactory {
+    private final DownstreamConnector connector;
+    private final DownstreamConnectionPool connectionPool;
+    private final ConnectConfig connectConfig;
 
     DownstreamChannelFactory(
-            final Endpoint endpoint,
-            final DownstreamConfig sslConfig,
-            final EventLoopGroup downstreamWorkerGroup
+            final DownstreamConnector connector,
+            final DownstreamConnectionPool connectionPool,
+            final ConnectConfig connectConfig
     ) {
-        this.endpoint = endpoint;
-        this.sslConfig = sslConfig;
-        this.downstreamWorkerGroup = downstreamWorkerGroup;
+        this.connector = connector;
+        this.connectionPool = connectionPool;
+        this.connectConfig = connectConfig;
     }
 
-    Sink<ByteBuf> create(
-            final Sink<ByteBuf> upstreamSink,
-            final FilterFactory<ByteBuf> upstreamFilterFactory,
-            final FilterFactory<ByteBuf> downstreamFilterFactory,
-            final KeyStoreWrapper keyStoreWrapper
-    ) {
-        return downstreamFilterFactory.apply(new DownstreamClient(
-                endpoint,
-                sslConfig,
-                upstreamFilterFactory.apply(upstreamSink),
-                downstreamWorkerGroup,
-                keyStoreWrapper
-        ));
+    @Override
+    public Sink<ByteBuf> create(final Sink<ByteBuf> upstreamSink, final Future<KeyStoreWrapper> clientIdentity) {
+        return new DownstreamClient(
+                connector.getEndpoint(),
+                upstreamSink,
+                connect(clientIdentity),
+                connectConfig.getPendingBytesLimit()
+        );
+    }
+
+    Endpoint getEndpoint() {
+        return connector.getEndpoint();
+    }
+
+    boolean isHealthy() {
+        return connector.isHealthy();
+    }
+
+    void setEndpoint(final Endpoint endpoint) {
+        connector.setEndpoint(endpoint);
+        if (connectionPool != null) {
+            connectionPool.drain();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (connectionPool != null) {
+            connectionPool.close();
+        }
+    }
+
+    private Future<Channel> connect(final Future<KeyStoreWrapper> clientIdentity) {
+        final Channel pooledChannel = connectionPool == null ? null : connectionPool.lease();
+        return pooledChannel == null
+                ? connector.connect(clientIdentity)
+                : pooledChannel.eventLoop().newSucceededFuture(pooledChannel);
     }
 }
@@ -17,72 +17,140 @@
 
 package com.dajudge.proxybase;
 
-import com.dajudge.proxybase.ca.KeyStoreWrapper;
-import com.dajudge.proxybase.config.DownstreamConfig;
 import com.dajudge.proxybase.config.Endpoint;
-import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.ByteBuf;
-import io.netty.channel.*;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.util.concurrent.Future;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import static com.dajudge.proxybase.ClientSslHandlerFactory.createHandler;
-import static io.netty.channel.ChannelOption.SO_KEEPALIVE;
+import java.util.ArrayDeque;
+import java.util.Queue;
 
 
 class DownstreamClient implements Sink<ByteBuf> {
     private static final Logger LOG = LoggerFactory.getLogger(DownstreamClient.class);
-    private final Channel channel;
+    private final Endpoint endpoint;
+    private final Sink<ByteBuf> messageSink;
+    private final int pendingBytesLimit;
+    private final Future<Channel> connectFuture;
+    private final Queue<ByteBuf> pendingBuffers = new ArrayDeque<>();
+    private int pendingBytes;
+    private boolean closed;
+    private volatile Channel channel;
 
     DownstreamClient(
             final Endpoint endpoint,
-            final DownstreamConfig sslConfig,
             final Sink<ByteBuf> messageSink,
-            final EventLoopGroup workerGroup,
-            final KeyStoreWrapper keyStore
+            final Future<Channel> connectFuture,
+            final int pendingBytesLimit
     ) {
-        final ChannelHandler sslHandler = createHandler(sslConfig, endpoint, keyStore);
-        try {
-            channel = new Bootstrap()
-                    .group(workerGroup)
-                    .channel(NioSocketChannel.class)
-                    .option(SO_KEEPALIVE, true)
-                    .handler(new ChannelInitializer<SocketChannel>() {
-                        @Override
-                        public void initChannel(SocketChannel ch) {
-                            final ChannelPipeline pipeline = ch.pipeline();
-                            pipeline.addLast(sslHandler);
-                            pipeline.addLast(new ProxyClientHandler(messageSink));
-                        }
-                    })
-                    .connect(endpoint.getHost(), endpoint.getPort()).sync().channel();
-            LOG.trace("Downstream channel established: {}", endpoint);
-            channel.closeFuture().addListener(future -> {
-                LOG.trace("Downstream channel closed: {}", endpoint);
-                messageSink.close();
-            });
-            LOG.trace("Downstream connection established to {}", endpoint);
-        } catch (final InterruptedException e) {
-            LOG.debug("Failed to establish downstream connection to {}", endpoint, e);
-            throw new RuntimeException(e);
+        this.endpoint = endpoint;
+        this.messageSink = messageSink;
+        this.pendingBytesLimit = pendingBytesLimit;
+        this.connectFuture = connectFuture;
+        connectFuture.addListener(future -> onConnectComplete());
+    }
+
+    private void onConnectComplete() {
+        if (connectFuture.isCancelled()) {
+            return;
+        }
+        if (!connectFuture.isSuccess()) {
+            LOG.warn("Failed to establish downstream connection to {}: {}", endpoint, connectFuture.cause().toString());
+            LOG.debug("Downstream connection failure details", connectFuture.cause());
+            releasePendingBuffers();
+            messageSink.close();
+            return;
+        }
+        final Channel connectedChannel = connectFuture.getNow();
+        connectedChannel.pipeline().addLast(new ProxyClientHandler(messageSink));
+        connectedChannel.closeFuture().addListener(future -> {
+            LOG.trace("Downstream channel closed: {}", endpoint);
+            releasePendingBuffers();
+            messageSink.close();
+        });
+        synchronized (pendingBuffers) {
+            if (closed) {
+                connectedChannel.close();
+                return;
+            }
+            LOG.trace("Downstream connection established to {}, flushing {} pending bytes", endpoint, pendingBytes);
+            ByteBuf buffer;
+            while ((buffer = pendingBuffers.poll()) != null) {
+                write(connectedChannel, buffer);
+            }
+            pendingBytes = 0;
+            channel = connectedChannel;
         }
     }
 
     @Override
-    public ChannelFuture close() {
-        return channel.close();
+    public Future<?> close() {
+        synchronized (pendingBuffers) {
+            if (channel != null) {
+                return channel.close();
+            }
+            connectFuture.cancel(false);
+            releasePendingBuffers();
+        }
+        return messageSink.close();
     }
 
     @Override
     public void accept(final ByteBuf buffer) {
-        LOG.trace("Sending {} bytes downstream.", buffer.readableBytes());
-        channel.writeAndFlush(buffer).addListener((ChannelFutureListener) future -> {
+        buffer.retain();
+        final Channel connectedChannel = channel;
+        if (connectedChannel == null) {
+            enqueueOrWrite(buffer);
+        } else {
+            write(connectedChannel, buffer);
+        }
+    }
+
+    private void enqueueOrWrite(final ByteBuf buffer) {
+        synchronized (pendingBuffers) {
+            if (channel != null) {
+                write(channel, buffer);
+                return;
+            }
+            if (closed) {
+                buffer.release();
+                return;
+            }
+            pendingBytes += buffer.readableBytes();
+            if (pendingBytes > pendingBytesLimit) {
+                LOG.warn("Closing connection to {}: more than {} bytes pending while connecting",
+                        endpoint, pendingBytesLimit);
+                buffer.release();
+                close();
+                return;
+            }
+            LOG.trace("Buffering {} bytes until downstream connection to {} is established.",
+                    buffer.readableBytes(), endpoint);
+            pendingBuffers.add(buffer);
+        }
+    }
+
+    private void releasePendingBuffers() {
+        synchronized (pendingBuffers) {
+            closed = true;
+            pendingBuffers.forEach(ByteBuf::release);
+            pendingBuffers.clear();
+            pendingBytes = 0;
+        }
+    }
+
+    private void write(final Channel target, final ByteBuf buffer) {
+        final int bytes = buffer.readableBytes();
+        LOG.trace("Sending {} bytes downstream.", bytes);
+        target.writeAndFlush(buffer).addListener((ChannelFutureListener) future -> {
             if (!future.isSuccess()) {
-                LOG.debug("Failed to send {} bytes downstream.", buffer.readableBytes(), future.cause());
+                LOG.debug("Failed to send {} bytes downstream.", bytes, future.cause());
             } else {
-                LOG.trace("Sent {} bytes downstream.", buffer.readableBytes());
+                LOG.trace("Sent {} bytes downstream.", bytes);
             }
         });
     }
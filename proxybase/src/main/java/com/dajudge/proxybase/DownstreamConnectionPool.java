@@ -0,0 +1,186 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.ca.KeyStoreWrapper;
+import com.dajudge.proxybase.config.ConnectionPoolConfig;
+import com.dajudge.proxybase.metrics.Counter;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.dajudge.proxybase.metrics.Metrics.counter;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+class DownstreamConnectionPool {
+    private static final Logger LOG = LoggerFactory.getLogger(DownstreamConnectionPool.class);
+    private final Counter hits = counter("downstream_pool_hits");
+    private final Counter misses = counter("downstream_pool_misses");
+    private final DownstreamConnector connector;
+    private final Future<KeyStoreWrapper> clientIdentity;
+    private final ConnectionPoolConfig config;
+    private final long idleTimeoutNanos;
+    private final Deque<IdleConnection> idleConnections = new ConcurrentLinkedDeque<>();
+    private final Set<Future<Channel>> pendingConnects = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connecting = new AtomicInteger();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final ScheduledFuture<?> refillTask;
+    private volatile boolean closed;
+
+    DownstreamConnectionPool(
+            final DownstreamConnector connector,
+            final KeyStoreWrapper keyStore,
+            final ConnectionPoolConfig config
+    ) {
+        this.connector = connector;
+        this.clientIdentity = ImmediateEventExecutor.INSTANCE.newSucceededFuture(keyStore);
+        this.config = config;
+        this.idleTimeoutNanos = MILLISECONDS.toNanos(config.getIdleTimeoutMillis());
+        final long refillInterval = 1000 / config.getRefillRate();
+        refillTask = connector.getWorkerGroup().next()
+                .scheduleAtFixedRate(this::maintain, 0, refillInterval, MILLISECONDS);
+    }
+
+    Channel lease() {
+        IdleConnection connection;
+        while ((connection = idleConnections.pollFirst()) != null) {
+            if (connection.channel.isActive()) {
+                connection.channel.pipeline().remove(connection.guard);
+                hits.increment();
+                return connection.channel;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    void drain() {
+        generation.incrementAndGet();
+        pendingConnects.forEach(connect -> connect.cancel(false));
+        IdleConnection connection;
+        while ((connection = idleConnections.pollFirst()) != null) {
+            connection.channel.close();
+        }
+    }
+
+    void close() {
+        closed = true;
+        refillTask.cancel(false);
+        drain();
+    }
+
+    private void maintain() {
+        final long now = System.nanoTime();
+        IdleConnection oldest;
+        while ((oldest = idleConnections.peekLast()) != null && now - oldest.idleSince > idleTimeoutNanos) {
+            if (idleConnections.removeLastOccurrence(oldest)) {
+                LOG.trace("Closing idle pooled connection to {}", connector.getEndpoint());
+                oldest.channel.close();
+            }
+        }
+        if (!closed && idleConnections.size() + connecting.get() < config.getSize()) {
+            open();
+        }
+    }
+
+    private void open() {
+        connecting.incrementAndGet();
+        final int openedIn = generation.get();
+        final Future<Channel> connect = connector.connect(clientIdentity);
+        pendingConnects.add(connect);
+        connect.addListener((FutureListener<Channel>) future -> {
+            pendingConnects.remove(future);
+            if (!future.isSuccess()) {
+                connecting.decrementAndGet();
+                LOG.debug("Failed to open pooled connection to {}", connector.getEndpoint(), future.cause());
+                return;
+            }
+            final Channel channel = future.getNow();
+            final SslHandler sslHandler = channel.pipeline().get(SslHandler.class);
+            if (sslHandler == null) {
+                offer(channel, openedIn);
+                return;
+            }
+            sslHandler.handshakeFuture().addListener(handshake -> {
+                if (handshake.isSuccess()) {
+                    offer(channel, openedIn);
+                } else {
+                    connecting.decrementAndGet();
+                    LOG.debug("Failed to handshake pooled connection to {}", connector.getEndpoint(),
+                            handshake.cause());
+                    channel.close();
+                }
+            });
+        });
+    }
+
+    private void offer(final Channel channel, final int openedIn) {
+        connecting.decrementAndGet();
+        if (openedIn != generation.get()) {
+            LOG.trace("Closing pooled connection to previous endpoint of {}", connector.getEndpoint());
+            channel.close();
+            return;
+        }
+        final IdleConnection connection = new IdleConnection(channel);
+        channel.pipeline().addLast(connection.guard);
+        idleConnections.offerFirst(connection);
+        channel.closeFuture().addListener(future -> idleConnections.remove(connection));
+        if (closed && idleConnections.remove(connection)) {
+            channel.close();
+        }
+    }
+
+    private static class IdleConnection {
+        private final Channel channel;
+        private final IdleConnectionGuard guard = new IdleConnectionGuard();
+        private final long idleSince = System.nanoTime();
+
+        private IdleConnection(final Channel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private static class IdleConnectionGuard extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+            ReferenceCountUtil.release(msg);
+            LOG.debug("Closing pooled connection {}: unexpected data from broker", ctx.channel().remoteAddress());
+            ctx.close();
+        }
+
+        @Override
+        public void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) {
+            LOG.debug("Exception caught in pooled connection {}", ctx.channel().remoteAddress(), cause);
+            ctx.close();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.ca.KeyStoreWrapper;
+import com.dajudge.proxybase.config.ConnectConfig;
+import com.dajudge.proxybase.config.Endpoint;
+import com.dajudge.proxybase.metrics.Counter;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.ssl.SslContext;
+import io.netty.resolver.AddressResolverGroup;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.Promise;
+
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.dajudge.proxybase.metrics.Metrics.counter;
+import static io.netty.channel.ChannelOption.CONNECT_TIMEOUT_MILLIS;
+import static io.netty.channel.ChannelOption.RCVBUF_ALLOCATOR;
+import static io.netty.channel.ChannelOption.SO_KEEPALIVE;
+import static java.util.stream.Collectors.toList;
+
+class DownstreamConnector {
+    private final Counter failures = counter("downstream_connect_failures");
+    private final Counter rejections = counter("downstream_connect_rejections");
+    private final ClientSslHandlerFactory sslHandlerFactory;
+    private final EventLoopGroup workerGroup;
+    private final RecvByteBufAllocator recvByteBufAllocator;
+    private final AddressResolverGroup<InetSocketAddress> resolverGroup;
+    private final int connectTimeoutMillis;
+    private final ConnectConfig connectConfig;
+    private volatile Endpoint endpoint;
+    private volatile CircuitBreaker circuitBreaker;
+
+    DownstreamConnector(
+            final Endpoint endpoint,
+            final ClientSslHandlerFactory sslHandlerFactory,
+            final EventLoopGroup workerGroup,
+            final RecvByteBufAllocator recvByteBufAllocator,
+            final AddressResolverGroup<InetSocketAddress> resolverGroup,
+            final ConnectConfig connectConfig
+    ) {
+        this.sslHandlerFactory = sslHandlerFactory;
+        this.workerGroup = workerGroup;
+        this.recvByteBufAllocator = recvByteBufAllocator;
+        this.resolverGroup = resolverGroup;
+        this.connectTimeoutMillis = connectConfig.getConnectTimeoutMillis();
+        this.connectConfig = connectConfig;
+        setEndpoint(endpoint);
+    }
+
+    synchronized void setEndpoint(final Endpoint endpoint) {
+        this.circuitBreaker = new CircuitBreaker(
+                endpoint,
+                connectConfig.getCircuitBreakerFailures(),
+                connectConfig.getCircuitBreakerOpenMillis()
+        );
+        this.endpoint = endpoint;
+    }
+
+    boolean isHealthy() {
+        return circuitBreaker.isClosed();
+    }
+
+    Future<Channel> connect(final Future<KeyStoreWrapper> clientIdentity) {
+        final Endpoint endpoint = this.endpoint;
+        final CircuitBreaker circuitBreaker = this.circuitBreaker;
+        final EventLoop eventLoop = workerGroup.next();
+        final Promise<Channel> promise = eventLoop.newPromise();
+        if (!circuitBreaker.tryAcquire()) {
+            rejections.increment();
+            return promise.setFailure(new ConnectException("Circuit breaker open for " + endpoint));
+        }
+        final InetSocketAddress address = InetSocketAddress.createUnresolved(endpoint.getHost(), endpoint.getPort());
+        resolverGroup.getResolver(eventLoop).resolveAll(address)
+                .addListener((FutureListener<List<InetSocketAddress>>) resolved -> {
+                    if (resolved.isSuccess()) {
+                        connectAny(eventLoop, endpoint, circuitBreaker, resolved.getNow(), clientIdentity, promise);
+                    } else {
+                        onFailure(circuitBreaker, promise, resolved.cause());
+                    }
+                });
+        return promise;
+    }
+
+    private void connectAny(
+            final EventLoop eventLoop,
+            final Endpoint endpoint,
+            final CircuitBreaker circuitBreaker,
+            final List<InetSocketAddress> addresses,
+            final Future<KeyStoreWrapper> clientIdentity,
+            final Promise<Channel> promise
+    ) {
+        final AtomicInteger remainingAttempts = new AtomicInteger(addresses.size());
+        final AtomicBoolean connected = new AtomicBoolean();
+        final List<ChannelFuture> attempts = addresses.stream()
+                .map(address -> connect(eventLoop, address))
+                .collect(toList());
+        promise.addListener(future -> {
+            if (future.isCancelled()) {
+                attempts.forEach(attempt -> attempt.channel().close());
+            }
+        });
+        attempts.forEach(attempt -> attempt.addListener((ChannelFutureListener) future -> {
+            if (future.isSuccess()) {
+                if (!connected.compareAndSet(false, true)) {
+                    future.channel().close();
+                    return;
+                }
+                circuitBreaker.onSuccess();
+                attempts.stream()
+                        .filter(other -> other != future)
+                        .forEach(other -> other.channel().close());
+                secure(future.channel(), endpoint, clientIdentity, promise);
+            } else if (remainingAttempts.decrementAndGet() == 0) {
+                onFailure(circuitBreaker, promise, future.cause());
+            }
+        }));
+    }
+
+    private void secure(
+            final Channel channel,
+            final Endpoint endpoint,
+            final Future<KeyStoreWrapper> clientIdentity,
+            final Promise<Channel> promise
+    ) {
+        if (!sslHandlerFactory.isEnabled()) {
+            complete(channel, promise);
+            return;
+        }
+        clientIdentity.addListener((FutureListener<KeyStoreWrapper>) identity -> {
+            if (!identity.isSuccess()) {
+                fail(channel, promise, identity.cause());
+                return;
+            }
+            final Future<SslContext> sslContext = sslHandlerFactory.getContext(endpoint, identity.getNow());
+            sslContext.addListener((FutureListener<SslContext>) context ->
+                    channel.eventLoop().execute(() -> {
+                        if (!context.isSuccess()) {
+                            fail(channel, promise, context.cause());
+                            return;
+                        }
+                        final ChannelHandler sslHandler = sslHandlerFactory.createHandler(
+                                endpoint,
+                                context.getNow(),
+                                channel.alloc()
+                        );
+                        channel.pipeline().addFirst("ssl", sslHandler);
+                        complete(channel, promise);
+                    }));
+        });
+    }
+
+    private static void fail(final Channel channel, final Promise<Channel> promise, final Throwable cause) {
+        channel.close();
+        promise.tryFailure(cause);
+    }
+
+    private static void complete(final Channel channel, final Promise<Channel> promise) {
+        if (!promise.trySuccess(channel)) {
+            channel.close();
+        }
+    }
+
+    private ChannelFuture connect(final EventLoop eventLoop, final InetSocketAddress address) {
+        return new Bootstrap()
+                .group(eventLoop)
+                .channel(NioSocketChannel.class)
+                .option(SO_KEEPALIVE, true)
+                .option(RCVBUF_ALLOCATOR, recvByteBufAllocator)
+                .option(CONNECT_TIMEOUT_MILLIS, connectTimeoutMillis)
+                .handler(new NullChannelHandler())
+                .connect(address);
+    }
+
+    private void onFailure(final CircuitBreaker circuitBreaker, final Promise<Channel> promise, final Throwable cause) {
+        if (promise.isDone()) {
+            circuitBreaker.onCancel();
+            return;
+        }
+        failures.increment();
+        circuitBreaker.onFailure();
+        promise.tryFailure(cause);
+    }
+
+    Endpoint getEndpoint() {
+        return endpoint;
+    }
+
+    EventLoopGroup getWorkerGroup() {
+        return workerGroup;
+    }
+}
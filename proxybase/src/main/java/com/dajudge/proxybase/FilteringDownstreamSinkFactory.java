@@ -0,0 +1,51 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.ca.KeyStoreWrapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.Future;
+
+class FilteringDownstreamSinkFactory implements DownstreamSinkFactory {
+    private final DownstreamSinkFactory delegate;
+    private final FilterFactory<ByteBuf> upstreamFilterFactory;
+    private final FilterFactory<ByteBuf> downstreamFilterFactory;
+
+    FilteringDownstreamSinkFactory(
+            final DownstreamSinkFactory delegate,
+            final FilterFactory<ByteBuf> upstreamFilterFactory,
+            final FilterFactory<ByteBuf> downstreamFilterFactory
+    ) {
+        this.delegate = delegate;
+        this.upstreamFilterFactory = upstreamFilterFactory;
+        this.downstreamFilterFactory = downstreamFilterFactory;
+    }
+
+    @Override
+    public Sink<ByteBuf> create(final Sink<ByteBuf> upstreamSink, final Future<KeyStoreWrapper> clientIdentity) {
+        return downstreamFilterFactory.apply(delegate.create(
+                upstreamFilterFactory.apply(upstreamSink),
+                clientIdentity
+        ));
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -23,6 +23,8 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.ssl.SslHandler;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,15 +36,15 @@ import java.util.function.Function;
 
 class ForwardingInboundHandler extends ChannelInboundHandlerAdapter {
     private static final Logger LOG = LoggerFactory.getLogger(ForwardingInboundHandler.class);
-    private final Function<UpstreamCertificateSupplier, Sink<ByteBuf>> sinkFactory;
+    private final Function<Future<UpstreamCertificateSupplier>, Sink<ByteBuf>> sinkFactory;
     private Sink<ByteBuf> sink;
 
-    ForwardingInboundHandler(final Function<UpstreamCertificateSupplier, Sink<ByteBuf>> sinkFactory) {
+    ForwardingInboundHandler(final Function<Future<UpstreamCertificateSupplier>, Sink<ByteBuf>> sinkFactory) {
         this.sinkFactory = sinkFactory;
     }
 
     @Override
-    public void channelRegistered(final ChannelHandlerContext ctx) throws Exception {
+    public void handlerAdded(final ChannelHandlerContext ctx) {
         final UpstreamCertificateSupplier certSupplier = () -> {
             final ChannelHandler sslHandler = ctx.channel().pipeline().get("ssl");
             if (sslHandler instanceof SslHandler) {
@@ -53,7 +55,20 @@ class ForwardingInboundHandler extends ChannelInboundHandlerAdapter {
                 throw new SSLPeerUnverifiedException("Upstream SSL not enabled");
             }
         };
-        sink = sinkFactory.apply(certSupplier);
+        final Promise<UpstreamCertificateSupplier> upstreamHandshake = ctx.executor().newPromise();
+        final ChannelHandler sslHandler = ctx.channel().pipeline().get("ssl");
+        if (sslHandler instanceof SslHandler) {
+            ((SslHandler) sslHandler).handshakeFuture().addListener(handshake -> {
+                if (handshake.isSuccess()) {
+                    upstreamHandshake.trySuccess(certSupplier);
+                } else {
+                    upstreamHandshake.tryFailure(handshake.cause());
+                }
+            });
+        } else {
+            upstreamHandshake.trySuccess(certSupplier);
+        }
+        sink = sinkFactory.apply(upstreamHandshake);
     }
 
     @Override
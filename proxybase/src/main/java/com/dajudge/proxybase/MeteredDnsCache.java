@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.metrics.Counter;
+import io.netty.channel.EventLoop;
+import io.netty.handler.codec.dns.DnsRecord;
+import io.netty.resolver.dns.DnsCache;
+import io.netty.resolver.dns.DnsCacheEntry;
+
+import java.net.InetAddress;
+import java.util.List;
+
+import static com.dajudge.proxybase.metrics.Metrics.counter;
+
+class MeteredDnsCache implements DnsCache {
+    private final Counter hits = counter("dns_cache_hits");
+    private final Counter misses = counter("dns_cache_misses");
+    private final DnsCache delegate;
+
+    MeteredDnsCache(final DnsCache delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public boolean clear(final String hostname) {
+        return delegate.clear(hostname);
+    }
+
+    @Override
+    public List<? extends DnsCacheEntry> get(final String hostname, final DnsRecord[] additionals) {
+        final List<? extends DnsCacheEntry> entries = delegate.get(hostname, additionals);
+        if (entries == null || entries.isEmpty()) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return entries;
+    }
+
+    @Override
+    public DnsCacheEntry cache(
+            final String hostname,
+            final DnsRecord[] additionals,
+            final InetAddress address,
+            final long originalTtl,
+            final EventLoop loop
+    ) {
+        return delegate.cache(hostname, additionals, address, originalTtl, loop);
+    }
+
+    @Override
+    public DnsCacheEntry cache(
+            final String hostname,
+            final DnsRecord[] additionals,
+            final Throwable cause,
+            final EventLoop loop
+    ) {
+        return delegate.cache(hostname, additionals, cause, loop);
+    }
+}
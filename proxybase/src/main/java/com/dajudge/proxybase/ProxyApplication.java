@@ -18,9 +18,14 @@
 package com.dajudge.proxybase;
 
 import com.dajudge.proxybase.ca.CertificateAuthority;
+import com.dajudge.proxybase.config.ConnectConfig;
+import com.dajudge.proxybase.config.ConnectionPoolConfig;
+import com.dajudge.proxybase.config.CryptoExecutorConfig;
+import com.dajudge.proxybase.config.DnsConfig;
 import com.dajudge.proxybase.config.DownstreamConfig;
+import com.dajudge.proxybase.config.ReadBudgetConfig;
+import com.dajudge.proxybase.config.SniConfig;
 import com.dajudge.proxybase.config.UpstreamConfig;
-import io.netty.channel.nio.NioEventLoopGroup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,16 +38,34 @@ public abstract class ProxyApplication {
     private final UpstreamConfig upstreamConfig;
     private final DownstreamConfig downstreamConfig;
     private final CertificateAuthority certificateAuthority;
+    private final ReadBudgetConfig readBudgetConfig;
+    private final ConnectConfig connectConfig;
+    private final DnsConfig dnsConfig;
+    private final ConnectionPoolConfig connectionPoolConfig;
+    private final SniConfig sniConfig;
+    private final CryptoExecutorConfig cryptoExecutorConfig;
     private Runnable shutdownRunnable;
 
     protected ProxyApplication(
             final UpstreamConfig upstreamConfig,
             final DownstreamConfig downstreamConfig,
-            final CertificateAuthority certificateAuthority
+            final CertificateAuthority certificateAuthority,
+            final ReadBudgetConfig readBudgetConfig,
+            final ConnectConfig connectConfig,
+            final DnsConfig dnsConfig,
+            final ConnectionPoolConfig connectionPoolConfig,
+            final SniConfig sniConfig,
+            final CryptoExecutorConfig cryptoExecutorConfig
     ) {
         this.upstreamConfig = upstreamConfig;
         this.downstreamConfig = downstreamConfig;
         this.certificateAuthority = certificateAuthority;
+        this.readBudgetConfig = readBudgetConfig;
+        this.connectConfig = connectConfig;
+        this.dnsConfig = dnsConfig;
+        this.connectionPoolConfig = connectionPoolConfig;
+        this.sniConfig = sniConfig;
+        this.cryptoExecutorConfig = cryptoExecutorConfig;
     }
 
     public void shutdown() {
@@ -53,21 +76,35 @@ public abstract class ProxyApplication {
     }
 
     public ProxyApplication start() {
-        final NioEventLoopGroup serverWorkerGroup = new NioEventLoopGroup();
-        final NioEventLoopGroup upstreamWorkerGroup = new NioEventLoopGroup();
-        final NioEventLoopGroup downstreamWorkerGroup = new NioEventLoopGroup();
+        return start(new ProxyEventLoops(readBudgetConfig, dnsConfig), true);
+    }
+
+    public ProxyApplication start(final ProxyEventLoops eventLoops) {
+        return start(eventLoops, false);
+    }
+
+    private ProxyApplication start(final ProxyEventLoops eventLoops, final boolean ownsEventLoops) {
+        final ProxySslHandlerFactory sslHandlerFactory = new ProxySslHandlerFactory(upstreamConfig);
+        final SniRouter sniRouter = createSniRouter(eventLoops, sslHandlerFactory);
+        final CryptoExecutor cryptoExecutor = new CryptoExecutor(cryptoExecutorConfig);
         final ProxyChannelFactory proxyChannelFactory = new ProxyChannelFactory(
-                downstreamWorkerGroup,
-                serverWorkerGroup,
-                upstreamWorkerGroup,
-                upstreamConfig,
-                downstreamConfig,
-                certificateAuthority
+                eventLoops.getDownstreamWorkerGroup(),
+                eventLoops.getServerWorkerGroup(),
+                eventLoops.getUpstreamWorkerGroup(),
+                sslHandlerFactory,
+                new ClientSslHandlerFactory(downstreamConfig, cryptoExecutor),
+                certificateAuthority,
+                cryptoExecutor,
+                eventLoops.getRecvByteBufAllocator(),
+                connectConfig,
+                eventLoops.getResolverGroup(),
+                connectionPoolConfig,
+                sniRouter
         );
-        final Collection<ProxyChannel> proxyChannels = initializeProxyChannels(proxyChannelFactory);
+        final Collection<? extends ProxyListener> proxyChannels = initializeProxyChannels(proxyChannelFactory);
         shutdownRunnable = () -> {
             proxyChannels.stream()
-                    .map(ProxyChannel::close)
+                    .map(ProxyListener::close)
                     .collect(toList())
                     .forEach(future -> {
                         try {
@@ -76,14 +113,38 @@ public abstract class ProxyApplication {
                             LOG.error("Failed to sync with proxy channel", e);
                         }
                     });
-            serverWorkerGroup.shutdownGracefully();
-            upstreamWorkerGroup.shutdownGracefully();
-            downstreamWorkerGroup.shutdownGracefully();
+            if (sniRouter != null) {
+                sniRouter.close().syncUninterruptibly();
+            }
+            sslHandlerFactory.close();
+            cryptoExecutor.shutdown();
+            certificateAuthority.close();
+            if (ownsEventLoops) {
+                eventLoops.shutdown();
+            }
         };
         return this;
     }
 
-    protected abstract Collection<ProxyChannel> initializeProxyChannels(
+    private SniRouter createSniRouter(
+            final ProxyEventLoops eventLoops,
+            final ProxySslHandlerFactory sslHandlerFactory
+    ) {
+        if (!sniConfig.isEnabled()) {
+            return null;
+        }
+        final SniRouter sniRouter = new SniRouter(
+                sniConfig.getPort(),
+                sslHandlerFactory,
+                eventLoops.getServerWorkerGroup(),
+                eventLoops.getUpstreamWorkerGroup(),
+                eventLoops.getRecvByteBufAllocator()
+        );
+        sniRouter.start().syncUninterruptibly();
+        return sniRouter;
+    }
+
+    protected abstract Collection<? extends ProxyListener> initializeProxyChannels(
             final ProxyChannelFactory proxyChannelFactory
     );
 }
@@ -17,102 +17,57 @@
 
 package com.dajudge.proxybase;
 
-import com.dajudge.proxybase.ca.CertificateAuthority;
-import com.dajudge.proxybase.ca.KeyStoreWrapper;
-import com.dajudge.proxybase.ca.UpstreamCertificateSupplier;
 import com.dajudge.proxybase.config.Endpoint;
-import com.dajudge.proxybase.config.UpstreamConfig;
-import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.ByteBuf;
-import io.netty.channel.*;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.RecvByteBufAllocator;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.Future;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.net.ssl.SSLPeerUnverifiedException;
-import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static com.dajudge.proxybase.ProxySslHandlerFactory.createSslHandler;
-
-public class ProxyChannel {
+public class ProxyChannel extends ProxyListener {
     private static final Logger LOG = LoggerFactory.getLogger(ProxyChannel.class);
-    private boolean initialized = false;
-    private final Endpoint endpoint;
-    private final UpstreamConfig sslConfig;
-    private final NioEventLoopGroup bossGroup;
-    private final NioEventLoopGroup upstreamWorkerGroup;
-    private final DownstreamChannelFactory downstreamSinkFactory;
-    private final CertificateAuthority certificateAuthority;
-    private Channel channel;
-    private FilterFactory<ByteBuf> upstreamTransformFactory;
-    private FilterFactory<ByteBuf> downstreamTransformFactory;
+    private final DownstreamChannelFactory downstreamChannelFactory;
+    private final DownstreamSinkFactory downstreamSinkFactory;
+    private final ClientIdentityFactory clientIdentityFactory;
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private volatile long lastActiveNanos = System.nanoTime();
 
     ProxyChannel(
             final Endpoint endpoint,
-            final UpstreamConfig sslConfig,
+            final ProxySslHandlerFactory sslHandlerFactory,
             final NioEventLoopGroup bossGroup,
             final NioEventLoopGroup upstreamWorkerGroup,
-            final DownstreamChannelFactory downstreamSinkFactory,
-            final CertificateAuthority certificateAuthority,
-            final FilterFactory<ByteBuf> upstreamFilterFactory,
-            final FilterFactory<ByteBuf> downstreamFilterFactory
+            final DownstreamChannelFactory downstreamChannelFactory,
+            final DownstreamSinkFactory downstreamSinkFactory,
+            final ClientIdentityFactory clientIdentityFactory,
+            final RecvByteBufAllocator recvByteBufAllocator,
+            final SniRouter sniRouter
     ) {
-        this.endpoint = endpoint;
-        this.sslConfig = sslConfig;
-        this.bossGroup = bossGroup;
-        this.upstreamWorkerGroup = upstreamWorkerGroup;
+        super(endpoint, sslHandlerFactory, bossGroup, upstreamWorkerGroup, recvByteBufAllocator, sniRouter);
+        this.downstreamChannelFactory = downstreamChannelFactory;
         this.downstreamSinkFactory = downstreamSinkFactory;
-        this.certificateAuthority = certificateAuthority;
-        this.upstreamTransformFactory = upstreamFilterFactory;
-        this.downstreamTransformFactory = downstreamFilterFactory;
-    }
-
-    public void start() {
-        if (initialized) {
-            return;
-        }
-        initialized = true;
-        LOG.info("Starting proxy channel {}", endpoint);
-        try {
-            channel = new ServerBootstrap()
-                    .group(bossGroup, upstreamWorkerGroup)
-                    .channel(NioServerSocketChannel.class)
-                    .childHandler(createProxyInitializer(sslConfig))
-                    .option(ChannelOption.SO_BACKLOG, 128)
-                    .childOption(ChannelOption.SO_KEEPALIVE, true)
-                    .bind(endpoint.getPort())
-                    .sync()
-                    .channel();
-        } catch (final InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        this.clientIdentityFactory = clientIdentityFactory;
     }
 
-    private ChannelInitializer<SocketChannel> createProxyInitializer(
-            final UpstreamConfig upstreamConfig
-    ) {
-        return new ChannelInitializer<SocketChannel>() {
-            @Override
-            public void initChannel(final SocketChannel ch) {
-                final ChannelPipeline pipeline = ch.pipeline();
-                LOG.trace("Incoming connection: {}", ch.remoteAddress());
-                pipeline.addLast("ssl", createSslHandler(upstreamConfig));
-                pipeline.addLast(createDownstreamHandler(new SocketChannelSink(ch)));
-            }
-        };
-    }
-
-    private ForwardingInboundHandler createDownstreamHandler(final Sink<ByteBuf> upstreamSink) {
-        return new ForwardingInboundHandler(certSupplier -> {
+    @Override
+    ChannelHandler createUpstreamHandler(final SocketChannel ch) {
+        activeConnections.incrementAndGet();
+        ch.closeFuture().addListener(future -> {
+            lastActiveNanos = System.nanoTime();
+            activeConnections.decrementAndGet();
+        });
+        final Sink<ByteBuf> upstreamSink = new SocketChannelSink(ch);
+        return new ForwardingInboundHandler(upstreamHandshake -> {
             try {
-                return downstreamSinkFactory.create(
-                        upstreamSink,
-                        upstreamTransformFactory,
-                        downstreamTransformFactory,
-                        getClientKeystore(certSupplier)
-                );
+                return downstreamSinkFactory.create(upstreamSink, clientIdentityFactory.create(upstreamHandshake));
             } catch (final RuntimeException e) {
                 LOG.error("Failed to create downstream channel", e);
                 throw e;
@@ -120,30 +75,37 @@ public class ProxyChannel {
         });
     }
 
-    private KeyStoreWrapper getClientKeystore(final UpstreamCertificateSupplier certSupplier) {
-        try {
-            return certificateAuthority.createClientCertificate(certSupplier);
-        } catch (final SSLPeerUnverifiedException e) {
-            throw new RuntimeException("Client did not provide valid certificate", e);
-        }
+    @Override
+    public synchronized Future<?> close() {
+        downstreamSinkFactory.close();
+        return super.close();
+    }
+
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    public long getLastActiveNanos() {
+        return activeConnections.get() > 0 ? System.nanoTime() : lastActiveNanos;
     }
 
-    public ChannelFuture close() {
-        return channel.close();
+    public boolean isHealthy() {
+        return downstreamChannelFactory.isHealthy();
     }
 
-    public int getPort() {
-        return ((InetSocketAddress) channel.localAddress()).getPort();
+    public Endpoint getDownstreamEndpoint() {
+        return downstreamChannelFactory.getEndpoint();
     }
 
-    public String getHost() {
-        return endpoint.getHost();
+    public void setDownstreamEndpoint(final Endpoint downstreamEndpoint) {
+        LOG.info("Proxy channel {} now forwarding to {}", getEndpoint(), downstreamEndpoint);
+        downstreamChannelFactory.setEndpoint(downstreamEndpoint);
     }
 
-    private static class SocketChannelSink implements Sink<ByteBuf> {
-        private final SocketChannel ch;
+    static class SocketChannelSink implements Sink<ByteBuf> {
+        private final Channel ch;
 
-        public SocketChannelSink(final SocketChannel ch) {
+        SocketChannelSink(final Channel ch) {
             this.ch = ch;
         }
 
@@ -161,12 +123,12 @@ public class ProxyChannel {
 
         @Override
         public void accept(final ByteBuf buffer) {
-            ch.writeAndFlush(buffer.copy()).addListener((ChannelFutureListener) future -> {
-                buffer.release();
+            final int bytes = buffer.readableBytes();
+            ch.writeAndFlush(buffer.retainedDuplicate()).addListener((ChannelFutureListener) future -> {
                 if (!future.isSuccess()) {
-                    LOG.error("Failed to send {} bytes upstream.", buffer.readableBytes(), future.cause());
+                    LOG.error("Failed to send {} bytes upstream.", bytes, future.cause());
                 } else {
-                    LOG.trace("Sent {} bytes upstream.", buffer.readableBytes());
+                    LOG.trace("Sent {} bytes upstream.", bytes);
                 }
             });
         }
@@ -18,37 +18,69 @@
 package com.dajudge.proxybase;
 
 import com.dajudge.proxybase.ca.CertificateAuthority;
-import com.dajudge.proxybase.config.DownstreamConfig;
+import com.dajudge.proxybase.config.ConnectConfig;
+import com.dajudge.proxybase.config.ConnectionPoolConfig;
 import com.dajudge.proxybase.config.Endpoint;
-import com.dajudge.proxybase.config.UpstreamConfig;
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.RecvByteBufAllocator;
 import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.resolver.AddressResolverGroup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
 public class ProxyChannelFactory {
     private static final Logger LOG = LoggerFactory.getLogger(ProxyChannelFactory.class);
     private final NioEventLoopGroup downstreamWorkerGroup;
     private final NioEventLoopGroup serverWorkerGroup;
     private final NioEventLoopGroup upstreamWorkerGroup;
-    private final UpstreamConfig upstreamConfig;
-    private final DownstreamConfig downstreamConfig;
-    private final CertificateAuthority certificateAuthority;
+    private final ProxySslHandlerFactory sslHandlerFactory;
+    private final ClientSslHandlerFactory clientSslHandlerFactory;
+    private final ClientIdentityFactory clientIdentityFactory;
+    private final RecvByteBufAllocator recvByteBufAllocator;
+    private final ConnectConfig connectConfig;
+    private final AddressResolverGroup<InetSocketAddress> resolverGroup;
+    private final ConnectionPoolConfig connectionPoolConfig;
+    private final SniRouter sniRouter;
 
     ProxyChannelFactory(
             final NioEventLoopGroup downstreamWorkerGroup,
             final NioEventLoopGroup serverWorkerGroup,
             final NioEventLoopGroup upstreamWorkerGroup,
-            final UpstreamConfig upstreamConfig,
-            final DownstreamConfig downstreamConfig,
-            final CertificateAuthority certificateAuthority
+            final ProxySslHandlerFactory sslHandlerFactory,
+            final ClientSslHandlerFactory clientSslHandlerFactory,
+            final CertificateAuthority certificateAuthority,
+            final CryptoExecutor cryptoExecutor,
+            final RecvByteBufAllocator recvByteBufAllocator,
+            final ConnectConfig connectConfig,
+            final AddressResolverGroup<InetSocketAddress> resolverGroup,
+            final ConnectionPoolConfig connectionPoolConfig,
+            final SniRouter sniRouter
     ) {
         this.downstreamWorkerGroup = downstreamWorkerGroup;
         this.serverWorkerGroup = serverWorkerGroup;
         this.upstreamWorkerGroup = upstreamWorkerGroup;
-        this.upstreamConfig = upstreamConfig;
-        this.downstreamConfig = downstreamConfig;
-        this.certificateAuthority = certificateAuthority;
+        this.sslHandlerFactory = sslHandlerFactory;
+        this.clientSslHandlerFactory = clientSslHandlerFactory;
+        this.clientIdentityFactory = new ClientIdentityFactory(certificateAuthority, cryptoExecutor);
+        this.recvByteBufAllocator = recvByteBufAllocator;
+        this.connectConfig = connectConfig;
+        this.resolverGroup = resolverGroup;
+        this.sniRouter = sniRouter;
+        if (connectionPoolConfig.isEnabled() && !certificateAuthority.hasStaticIdentity()) {
+            LOG.warn("Downstream connection pooling requires a static client certificate, disabling it.");
+            this.connectionPoolConfig = ConnectionPoolConfig.DISABLED;
+        } else {
+            this.connectionPoolConfig = connectionPoolConfig;
+        }
+    }
+
+    public boolean hasStaticClientIdentity() {
+        return clientIdentityFactory.getStaticIdentity() != null;
     }
 
     public ProxyChannel createProxyChannel(
@@ -57,23 +89,71 @@ public class ProxyChannelFactory {
             final FilterFactory<ByteBuf> upstreamFilterFactory,
             final FilterFactory<ByteBuf> downstreamFilterFactory
     ) {
-        final DownstreamChannelFactory downstreamSinkFactory = new DownstreamChannelFactory(
+        return createProxyChannel(upstreamEndpoint, downstreamEndpoint, downstreamSinkFactory ->
+                new FilteringDownstreamSinkFactory(
+                        downstreamSinkFactory,
+                        upstreamFilterFactory,
+                        downstreamFilterFactory
+                ));
+    }
+
+    public ProxyChannel createProxyChannel(
+            final Endpoint upstreamEndpoint,
+            final Endpoint downstreamEndpoint,
+            final Function<DownstreamSinkFactory, DownstreamSinkFactory> downstreamSinkFactoryDecorator
+    ) {
+        final DownstreamConnector downstreamConnector = new DownstreamConnector(
                 downstreamEndpoint,
-                downstreamConfig,
-                downstreamWorkerGroup
+                clientSslHandlerFactory,
+                downstreamWorkerGroup,
+                recvByteBufAllocator,
+                resolverGroup,
+                connectConfig
+        );
+        final DownstreamChannelFactory downstreamChannelFactory = new DownstreamChannelFactory(
+                downstreamConnector,
+                createConnectionPool(downstreamConnector),
+                connectConfig
         );
         final ProxyChannel proxyChannel = new ProxyChannel(
                 upstreamEndpoint,
-                upstreamConfig,
+                sslHandlerFactory,
                 serverWorkerGroup,
                 upstreamWorkerGroup,
-                downstreamSinkFactory,
-                certificateAuthority,
-                upstreamFilterFactory,
-                downstreamFilterFactory
+                downstreamChannelFactory,
+                downstreamSinkFactoryDecorator.apply(downstreamChannelFactory),
+                clientIdentityFactory,
+                recvByteBufAllocator,
+                sniRouter
         );
         LOG.info("Proxying {} as {}", downstreamEndpoint, upstreamEndpoint);
         return proxyChannel;
     }
 
+    public ProxyListener createBalancingProxyChannel(
+            final Endpoint upstreamEndpoint,
+            final Supplier<Collection<ProxyChannel>> targets
+    ) {
+        LOG.info("Balancing connections to {}", upstreamEndpoint);
+        return new BalancingProxyChannel(
+                upstreamEndpoint,
+                sslHandlerFactory,
+                serverWorkerGroup,
+                upstreamWorkerGroup,
+                recvByteBufAllocator,
+                targets
+        );
+    }
+
+    private DownstreamConnectionPool createConnectionPool(final DownstreamConnector downstreamConnector) {
+        if (!connectionPoolConfig.isEnabled()) {
+            return null;
+        }
+        return new DownstreamConnectionPool(
+                downstreamConnector,
+                clientIdentityFactory.getStaticIdentity(),
+                connectionPoolConfig
+        );
+    }
+
 }
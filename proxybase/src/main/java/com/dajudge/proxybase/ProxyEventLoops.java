@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.config.DnsConfig;
+import com.dajudge.proxybase.config.ReadBudgetConfig;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.nio.NioEventLoopGroup;
+
+public class ProxyEventLoops {
+    private final NioEventLoopGroup serverWorkerGroup;
+    private final NioEventLoopGroup upstreamWorkerGroup;
+    private final NioEventLoopGroup downstreamWorkerGroup;
+    private final CachingAddressResolverGroup resolverGroup;
+    private final RecvByteBufAllocator recvByteBufAllocator;
+
+    public ProxyEventLoops(final ReadBudgetConfig readBudgetConfig, final DnsConfig dnsConfig) {
+        this(readBudgetConfig, dnsConfig, 0);
+    }
+
+    ProxyEventLoops(final ReadBudgetConfig readBudgetConfig, final DnsConfig dnsConfig, final int threadsPerGroup) {
+        serverWorkerGroup = new NioEventLoopGroup(threadsPerGroup);
+        upstreamWorkerGroup = new NioEventLoopGroup(threadsPerGroup);
+        downstreamWorkerGroup = new NioEventLoopGroup(threadsPerGroup);
+        resolverGroup = new CachingAddressResolverGroup(dnsConfig);
+        recvByteBufAllocator = new ReadBudgetRecvByteBufAllocator(readBudgetConfig);
+    }
+
+    NioEventLoopGroup getServerWorkerGroup() {
+        return serverWorkerGroup;
+    }
+
+    NioEventLoopGroup getUpstreamWorkerGroup() {
+        return upstreamWorkerGroup;
+    }
+
+    NioEventLoopGroup getDownstreamWorkerGroup() {
+        return downstreamWorkerGroup;
+    }
+
+    CachingAddressResolverGroup getResolverGroup() {
+        return resolverGroup;
+    }
+
+    RecvByteBufAllocator getRecvByteBufAllocator() {
+        return recvByteBufAllocator;
+    }
+
+    public void shutdown() {
+        serverWorkerGroup.shutdownGracefully();
+        upstreamWorkerGroup.shutdownGracefully();
+        resolverGroup.close();
+        downstreamWorkerGroup.shutdownGracefully();
+    }
+}
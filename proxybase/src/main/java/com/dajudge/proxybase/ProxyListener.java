@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.config.Endpoint;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+
+public abstract class ProxyListener {
+    private static final Logger LOG = LoggerFactory.getLogger(ProxyListener.class);
+    private final Endpoint endpoint;
+    private final ProxySslHandlerFactory sslHandlerFactory;
+    private final NioEventLoopGroup bossGroup;
+    private final NioEventLoopGroup upstreamWorkerGroup;
+    private final RecvByteBufAllocator recvByteBufAllocator;
+    private final SniRouter sniRouter;
+    private ChannelFuture bindFuture;
+
+    ProxyListener(
+            final Endpoint endpoint,
+            final ProxySslHandlerFactory sslHandlerFactory,
+            final NioEventLoopGroup bossGroup,
+            final NioEventLoopGroup upstreamWorkerGroup,
+            final RecvByteBufAllocator recvByteBufAllocator,
+            final SniRouter sniRouter
+    ) {
+        this.endpoint = endpoint;
+        this.sslHandlerFactory = sslHandlerFactory;
+        this.bossGroup = bossGroup;
+        this.upstreamWorkerGroup = upstreamWorkerGroup;
+        this.recvByteBufAllocator = recvByteBufAllocator;
+        this.sniRouter = sniRouter;
+    }
+
+    public synchronized ChannelFuture start() {
+        if (bindFuture != null) {
+            return bindFuture;
+        }
+        if (sniRouter != null) {
+            LOG.info("Routing proxy channel {} via SNI", endpoint);
+            bindFuture = sniRouter.register(endpoint.getHost(), this);
+            return bindFuture;
+        }
+        LOG.info("Starting proxy channel {}", endpoint);
+        bindFuture = new ServerBootstrap()
+                .group(bossGroup, upstreamWorkerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(createProxyInitializer())
+                .option(ChannelOption.SO_BACKLOG, 128)
+                .childOption(ChannelOption.SO_KEEPALIVE, true)
+                .childOption(ChannelOption.RCVBUF_ALLOCATOR, recvByteBufAllocator)
+                .bind(endpoint.getPort())
+                .addListener((ChannelFutureListener) future -> {
+                    if (!future.isSuccess()) {
+                        LOG.error("Failed to bind proxy channel {}", endpoint, future.cause());
+                    }
+                });
+        return bindFuture;
+    }
+
+    private ChannelInitializer<SocketChannel> createProxyInitializer() {
+        return new ChannelInitializer<SocketChannel>() {
+            @Override
+            public void initChannel(final SocketChannel ch) {
+                final ChannelPipeline pipeline = ch.pipeline();
+                LOG.trace("Incoming connection: {}", ch.remoteAddress());
+                pipeline.addLast("ssl", sslHandlerFactory.createSslHandler(ch.alloc()));
+                pipeline.addLast(createUpstreamHandler(ch));
+            }
+        };
+    }
+
+    abstract ChannelHandler createUpstreamHandler(final SocketChannel ch);
+
+    public synchronized Future<?> close() {
+        if (bindFuture == null) {
+            return ImmediateEventExecutor.INSTANCE.newSucceededFuture(null);
+        }
+        if (sniRouter != null) {
+            sniRouter.unregister(endpoint.getHost());
+            return bindFuture.channel().newSucceededFuture();
+        }
+        return bindFuture.channel().close();
+    }
+
+    public int getPort() {
+        return ((InetSocketAddress) start().syncUninterruptibly().channel().localAddress()).getPort();
+    }
+
+    public String getHost() {
+        return endpoint.getHost();
+    }
+
+    public Endpoint getEndpoint() {
+        return endpoint;
+    }
+}
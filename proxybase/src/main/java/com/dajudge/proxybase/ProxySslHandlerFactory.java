@@ -17,51 +17,111 @@
 
 package com.dajudge.proxybase;
 
+import com.dajudge.proxybase.config.SslSessionConfig;
 import com.dajudge.proxybase.config.UpstreamConfig;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelHandler;
-import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.ClientAuth;
+import io.netty.handler.ssl.JdkSslContext;
+import io.netty.handler.ssl.OpenSslSessionContext;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.TrustManager;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ScheduledExecutorService;
 
-import static com.dajudge.proxybase.DefaultKeyManagerFactory.createKeyManagers;
+import static com.dajudge.proxybase.DefaultKeyManagerFactory.createKeyManagerFactory;
 import static com.dajudge.proxybase.DefaultTrustManagerFactory.createTrustManagers;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 class ProxySslHandlerFactory {
     private static final Logger LOG = LoggerFactory.getLogger(ProxySslHandlerFactory.class);
+    private final SslHandshakeCounter handshakes = new SslHandshakeCounter("upstream");
+    private final SslContext sslContext;
+    private final ScheduledExecutorService ticketKeyRotation;
 
-    static ChannelHandler createSslHandler(final UpstreamConfig config) {
-        return config.isEnabled()
-                ? createHandlerInternal(config)
-                : new NullChannelHandler();
+    ProxySslHandlerFactory(final UpstreamConfig config) {
+        sslContext = config.isEnabled() ? createSslContext(config) : null;
+        ticketKeyRotation = sslContext == null ? null : configureSessions(config.getSessionConfig());
     }
 
-    private static ChannelHandler createHandlerInternal(final UpstreamConfig config) {
-        LOG.info("Creating proxy channel SSL handler");
+    void close() {
+        if (ticketKeyRotation != null) {
+            ticketKeyRotation.shutdownNow();
+        }
+    }
+
+    boolean isEnabled() {
+        return sslContext != null;
+    }
+
+    ChannelHandler createSslHandler(final ByteBufAllocator alloc) {
+        return sslContext == null
+                ? new NullChannelHandler()
+                : handshakes.count(sslContext.newHandler(alloc));
+    }
+
+    private ScheduledExecutorService configureSessions(final SslSessionConfig sessionConfig) {
+        final SSLSessionContext sessionContext = sslContext.sessionContext();
+        sessionContext.setSessionCacheSize(sessionConfig.getCacheSize());
+        sessionContext.setSessionTimeout(sessionConfig.getTimeoutSeconds());
+        if (!(sessionContext instanceof OpenSslSessionContext)) {
+            if (sessionConfig.getTicketKeys() != null) {
+                LOG.warn("SSL session ticket keys are only supported with the OPENSSL provider, ignoring them.");
+            }
+            return null;
+        }
+        final SessionTicketKeys ticketKeys = new SessionTicketKeys(
+                (OpenSslSessionContext) sessionContext,
+                sessionConfig.getTicketKeys()
+        );
+        ticketKeys.rotate();
+        final long lifetime = sessionConfig.getTicketKeyLifetimeSeconds();
+        // Rotation may re-read the shared key file, so keep it off the event loops.
+        final ScheduledExecutorService rotation = newSingleThreadScheduledExecutor(
+                new DefaultThreadFactory("ssl-ticket-keys", true)
+        );
+        rotation.scheduleAtFixedRate(ticketKeys::rotateQuietly, lifetime, lifetime, SECONDS);
+        return rotation;
+    }
+
+    private static SslContext createSslContext(final UpstreamConfig config) {
+        final SslProvider provider = SslProviders.select(config.getProvider());
+        LOG.info("Creating proxy channel SSL context using {}", provider);
         try {
-            final SSLContext clientContext = SSLContext.getInstance("TLS");
             final TrustManager[] trustManagers = createTrustManagers(
                     config.getTrustStore(),
                     config.getTrustStorePassword().toCharArray()
             );
-            final KeyManager[] keyManagers = createKeyManagers(
+            final KeyManagerFactory keyManagerFactory = createKeyManagerFactory(
                     config.getKeyStore(),
                     config.getKeyStorePassword().toCharArray(),
                     config.getKeyPassword().toCharArray()
             );
-            clientContext.init(keyManagers, trustManagers, null);
-            final SSLEngine engine = clientContext.createSSLEngine();
-            engine.setUseClientMode(false);
-            engine.setNeedClientAuth(config.isClientAuthRequired());
-            return new SslHandler(engine);
-        } catch (final NoSuchAlgorithmException | KeyManagementException e) {
-            throw new RuntimeException("Failed to initialize upstream SSL handler", e);
+            final ClientAuth clientAuth = config.isClientAuthRequired() ? ClientAuth.REQUIRE : ClientAuth.NONE;
+            if (provider == SslProvider.OPENSSL) {
+                return SslContextBuilder.forServer(keyManagerFactory)
+                        .trustManager(SslProviders.trustManagerFactory(trustManagers))
+                        .clientAuth(clientAuth)
+                        .sslProvider(provider)
+                        .build();
+            }
+            final SSLContext serverContext = SSLContext.getInstance("TLS");
+            serverContext.init(keyManagerFactory.getKeyManagers(), trustManagers, null);
+            return new JdkSslContext(serverContext, false, clientAuth);
+        } catch (final NoSuchAlgorithmException | KeyManagementException | SSLException e) {
+            throw new RuntimeException("Failed to initialize upstream SSL context", e);
         }
     }
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.config.ReadBudgetConfig;
+import io.netty.channel.AdaptiveRecvByteBufAllocator;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.RecvByteBufAllocator;
+
+import static java.lang.Math.min;
+
+/**
+ * Limits the number of bytes and messages a single channel may read per event loop iteration. When
+ * the budget is exhausted the channel stops reading and the remaining data is picked up on the next
+ * iteration, after all other channels registered with the same event loop had their turn.
+ */
+class ReadBudgetRecvByteBufAllocator implements RecvByteBufAllocator {
+    private static final int MAX_INDIVIDUAL_READ = 64 * 1024;
+    private static final int INITIAL_READ = 1024;
+    private static final int MIN_READ = 64;
+    private final RecvByteBufAllocator delegate;
+    private final int maxBytesPerRead;
+
+    ReadBudgetRecvByteBufAllocator(final ReadBudgetConfig config) {
+        final int maxRead = min(config.getMaxBytesPerRead(), MAX_INDIVIDUAL_READ);
+        final int initialRead = min(INITIAL_READ, maxRead);
+        this.delegate = new AdaptiveRecvByteBufAllocator(min(MIN_READ, initialRead), initialRead, maxRead)
+                .maxMessagesPerRead(config.getMaxMessagesPerRead());
+        this.maxBytesPerRead = config.getMaxBytesPerRead();
+    }
+
+    @Override
+    public Handle newHandle() {
+        return new DelegatingHandle(delegate.newHandle()) {
+            private int bytesRead;
+
+            @Override
+            public void reset(final ChannelConfig config) {
+                bytesRead = 0;
+                super.reset(config);
+            }
+
+            @Override
+            public void lastBytesRead(final int bytes) {
+                if (bytes > 0) {
+                    bytesRead += bytes;
+                }
+                super.lastBytesRead(bytes);
+            }
+
+            @Override
+            public boolean continueReading() {
+                return bytesRead < maxBytesPerRead && super.continueReading();
+            }
+        };
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import io.netty.handler.ssl.OpenSslSessionContext;
+import io.netty.handler.ssl.OpenSslSessionTicketKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+class SessionTicketKeys {
+    private static final Logger LOG = LoggerFactory.getLogger(SessionTicketKeys.class);
+    private static final int PART_SIZE = 16;
+    private static final int KEY_SIZE = 3 * PART_SIZE;
+    private final SecureRandom random = new SecureRandom();
+    private final OpenSslSessionContext sessionContext;
+    private final Supplier<InputStream> keyFile;
+    private OpenSslSessionTicketKey currentKey;
+
+    SessionTicketKeys(final OpenSslSessionContext sessionContext, final Supplier<InputStream> keyFile) {
+        this.sessionContext = sessionContext;
+        this.keyFile = keyFile;
+    }
+
+    synchronized void rotate() {
+        if (keyFile != null) {
+            final List<byte[]> keys = loadKeys(keyFile);
+            LOG.debug("Loaded {} SSL session ticket keys", keys.size());
+            sessionContext.setTicketKeys(keys.stream()
+                    .map(SessionTicketKeys::toTicketKey)
+                    .toArray(OpenSslSessionTicketKey[]::new));
+            return;
+        }
+        final OpenSslSessionTicketKey previousKey = currentKey;
+        currentKey = toTicketKey(randomBytes());
+        LOG.debug("Generated new SSL session ticket key");
+        if (previousKey == null) {
+            sessionContext.setTicketKeys(currentKey);
+        } else {
+            sessionContext.setTicketKeys(currentKey, previousKey);
+        }
+    }
+
+    void rotateQuietly() {
+        try {
+            rotate();
+        } catch (final RuntimeException e) {
+            LOG.error("Failed to rotate SSL session ticket keys, keeping the previous keys", e);
+        }
+    }
+
+    private byte[] randomBytes() {
+        final byte[] bytes = new byte[KEY_SIZE];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    static List<byte[]> loadKeys(final Supplier<InputStream> keyFile) {
+        final List<byte[]> keys = new ArrayList<>();
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(keyFile.get(), UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    keys.add(parseKey(line.trim()));
+                }
+            }
+        } catch (final IOException e) {
+            throw new RuntimeException("Failed to read SSL session ticket keys", e);
+        }
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("No SSL session ticket keys found");
+        }
+        return keys;
+    }
+
+    private static byte[] parseKey(final String line) {
+        final byte[] bytes = Base64.getDecoder().decode(line);
+        if (bytes.length != KEY_SIZE) {
+            throw new IllegalArgumentException("SSL session ticket keys must be " + KEY_SIZE + " bytes long: "
+                    + bytes.length);
+        }
+        return bytes;
+    }
+
+    private static OpenSslSessionTicketKey toTicketKey(final byte[] bytes) {
+        return new OpenSslSessionTicketKey(
+                Arrays.copyOfRange(bytes, 0, PART_SIZE),
+                Arrays.copyOfRange(bytes, PART_SIZE, 2 * PART_SIZE),
+                Arrays.copyOfRange(bytes, 2 * PART_SIZE, KEY_SIZE)
+        );
+    }
+}
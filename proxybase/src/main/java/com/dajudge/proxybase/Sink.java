@@ -17,10 +17,14 @@
 
 package com.dajudge.proxybase;
 
-import io.netty.channel.ChannelFuture;
+import io.netty.util.concurrent.Future;
 
 import java.util.function.Consumer;
 
+/**
+ * Receives messages of a connection. The caller keeps ownership of the messages passed to {@link #accept(Object)},
+ * so a sink that holds on to a reference counted message beyond the call has to retain it.
+ */
 public interface Sink<T> extends Consumer<T> {
-    ChannelFuture close();
+    Future<?> close();
 }
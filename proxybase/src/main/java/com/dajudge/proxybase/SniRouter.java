@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.ssl.AbstractSniHandler;
+import io.netty.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+class SniRouter {
+    private static final Logger LOG = LoggerFactory.getLogger(SniRouter.class);
+    private final ConcurrentMap<String, ProxyListener> routes = new ConcurrentHashMap<>();
+    private final int port;
+    private final ProxySslHandlerFactory sslHandlerFactory;
+    private final NioEventLoopGroup bossGroup;
+    private final NioEventLoopGroup upstreamWorkerGroup;
+    private final RecvByteBufAllocator recvByteBufAllocator;
+    private ChannelFuture bindFuture;
+
+    SniRouter(
+            final int port,
+            final ProxySslHandlerFactory sslHandlerFactory,
+            final NioEventLoopGroup bossGroup,
+            final NioEventLoopGroup upstreamWorkerGroup,
+            final RecvByteBufAllocator recvByteBufAllocator
+    ) {
+        if (!sslHandlerFactory.isEnabled()) {
+            throw new IllegalArgumentException("SNI routing requires client SSL to be enabled");
+        }
+        this.port = port;
+        this.sslHandlerFactory = sslHandlerFactory;
+        this.bossGroup = bossGroup;
+        this.upstreamWorkerGroup = upstreamWorkerGroup;
+        this.recvByteBufAllocator = recvByteBufAllocator;
+    }
+
+    ChannelFuture register(final String hostname, final ProxyListener listener) {
+        routes.put(keyOf(hostname), listener);
+        return start();
+    }
+
+    void unregister(final String hostname) {
+        routes.remove(keyOf(hostname));
+    }
+
+    synchronized ChannelFuture start() {
+        if (bindFuture != null) {
+            return bindFuture;
+        }
+        LOG.info("Starting SNI router on port {}", port);
+        bindFuture = new ServerBootstrap()
+                .group(bossGroup, upstreamWorkerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    public void initChannel(final SocketChannel ch) {
+                        LOG.trace("Incoming connection: {}", ch.remoteAddress());
+                        ch.pipeline().addLast(new SniRoutingHandler());
+                    }
+                })
+                .option(ChannelOption.SO_BACKLOG, 128)
+                .childOption(ChannelOption.SO_KEEPALIVE, true)
+                .childOption(ChannelOption.RCVBUF_ALLOCATOR, recvByteBufAllocator)
+                .bind(port)
+                .addListener((ChannelFutureListener) future -> {
+                    if (!future.isSuccess()) {
+                        LOG.error("Failed to bind SNI router on port {}", port, future.cause());
+                    }
+                });
+        return bindFuture;
+    }
+
+    synchronized ChannelFuture close() {
+        return start().channel().close();
+    }
+
+    private static String keyOf(final String hostname) {
+        return hostname.toLowerCase(Locale.US);
+    }
+
+    private class SniRoutingHandler extends AbstractSniHandler<ProxyListener> {
+        @Override
+        protected Future<ProxyListener> lookup(final ChannelHandlerContext ctx, final String hostname) {
+            final ProxyListener route = hostname == null ? null : routes.get(keyOf(hostname));
+            if (route == null) {
+                return ctx.executor().newFailedFuture(new IllegalArgumentException("No route for " + hostname));
+            }
+            return ctx.executor().newSucceededFuture(route);
+        }
+
+        @Override
+        protected void onLookupComplete(
+                final ChannelHandlerContext ctx,
+                final String hostname,
+                final Future<ProxyListener> future
+        ) {
+            if (!future.isSuccess()) {
+                LOG.debug("Closing connection from {} with unknown SNI hostname {}", ctx.channel().remoteAddress(),
+                        hostname);
+                ctx.close();
+                return;
+            }
+            final SocketChannel ch = (SocketChannel) ctx.channel();
+            ctx.pipeline().addAfter(ctx.name(), "ssl", sslHandlerFactory.createSslHandler(ctx.alloc()));
+            ctx.pipeline().addAfter("ssl", null, future.getNow().createUpstreamHandler(ch));
+            ctx.pipeline().remove(this);
+        }
+    }
+}
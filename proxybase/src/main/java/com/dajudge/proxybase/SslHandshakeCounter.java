@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.metrics.Counter;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.ssl.SslHandler;
+
+import static com.dajudge.proxybase.metrics.Metrics.counter;
+
+class SslHandshakeCounter {
+    private final Counter fullHandshakes;
+    private final Counter resumedHandshakes;
+
+    SslHandshakeCounter(final String prefix) {
+        fullHandshakes = counter(prefix + "_ssl_handshakes_full");
+        resumedHandshakes = counter(prefix + "_ssl_handshakes_resumed");
+    }
+
+    ChannelHandler count(final SslHandler handler) {
+        final SslResumptionSniffer sniffer = new SslResumptionSniffer(handler.engine().getUseClientMode());
+        handler.handshakeFuture().addListener(future -> {
+            if (!future.isSuccess()) {
+                return;
+            }
+            if (sniffer.isResumed()) {
+                resumedHandshakes.increment();
+            } else {
+                fullHandshakes.increment();
+            }
+        });
+        return new SnifferInstaller(sniffer, handler);
+    }
+
+    // Takes the place of the SSL handler in the pipeline, so the sniffer sees the records the SSL handler exchanges
+    private static final class SnifferInstaller extends ChannelHandlerAdapter {
+        private final SslResumptionSniffer sniffer;
+        private final SslHandler handler;
+
+        private SnifferInstaller(final SslResumptionSniffer sniffer, final SslHandler handler) {
+            this.sniffer = sniffer;
+            this.handler = handler;
+        }
+
+        @Override
+        public void handlerAdded(final ChannelHandlerContext ctx) {
+            ctx.pipeline().addBefore(ctx.name(), null, sniffer);
+            ctx.pipeline().replace(this, ctx.name(), handler);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.config.TlsProvider;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.SimpleTrustManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.ManagerFactoryParameters;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import java.security.KeyStore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+final class SslProviders {
+    private static final Logger LOG = LoggerFactory.getLogger(SslProviders.class);
+    private static final AtomicBoolean FALLBACK_LOGGED = new AtomicBoolean();
+
+    private SslProviders() {
+    }
+
+    static SslProvider select(final TlsProvider provider) {
+        if (provider != TlsProvider.OPENSSL) {
+            return SslProvider.JDK;
+        }
+        if (OpenSsl.isAvailable()) {
+            return SslProvider.OPENSSL;
+        }
+        if (FALLBACK_LOGGED.compareAndSet(false, true)) {
+            LOG.warn("OpenSSL is not available, falling back to the JDK TLS provider.", OpenSsl.unavailabilityCause());
+        }
+        return SslProvider.JDK;
+    }
+
+    static TrustManagerFactory trustManagerFactory(final TrustManager... trustManagers) {
+        return new SimpleTrustManagerFactory() {
+            @Override
+            protected void engineInit(final KeyStore keyStore) {
+            }
+
+            @Override
+            protected void engineInit(final ManagerFactoryParameters managerFactoryParameters) {
+            }
+
+            @Override
+            protected TrustManager[] engineGetTrustManagers() {
+                return trustManagers;
+            }
+        };
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+import static io.netty.buffer.Unpooled.wrappedBuffer;
+
+/**
+ * Tells resumed from full SSL handshakes by the server's hello, independent of the SSL engine: a TLS 1.3 server
+ * accepts a pre-shared key, a TLS 1.2 server skips its certificate and finishes the handshake right away.
+ * Must be placed in front of the {@link io.netty.handler.ssl.SslHandler} to see the raw records.
+ */
+class SslResumptionSniffer extends ChannelDuplexHandler {
+    private static final int MAX_BUFFERED_BYTES = 64 * 1024;
+    private static final int RECORD_HEADER_LENGTH = 5;
+    private static final int HANDSHAKE_HEADER_LENGTH = 4;
+    private static final int RANDOM_LENGTH = 32;
+    private static final short CHANGE_CIPHER_SPEC = 20;
+    private static final short HANDSHAKE = 22;
+    private static final short SERVER_HELLO = 2;
+    private static final short NEW_SESSION_TICKET = 4;
+    private static final int PRE_SHARED_KEY = 41;
+    private static final int SUPPORTED_VERSIONS = 43;
+    private static final int TLS_1_3 = 0x0304;
+    // The random of a HelloRetryRequest, see RFC 8446 section 4.1.3
+    private static final ByteBuf HELLO_RETRY_REQUEST = wrappedBuffer(ByteBufUtil.decodeHexDump(
+            "CF21AD74E59A6111BE1D8C021E65B891C2A211167ABB8C5E079E09E2C8A8339C"
+    ));
+    private final boolean client;
+    private ByteBuf records;
+    private ByteBuf handshake;
+    private boolean tls12ServerHello;
+    private boolean done;
+    private boolean resumed;
+
+    SslResumptionSniffer(final boolean client) {
+        this.client = client;
+    }
+
+    boolean isResumed() {
+        return resumed;
+    }
+
+    @Override
+    public void handlerAdded(final ChannelHandlerContext ctx) {
+        records = ctx.alloc().buffer();
+        handshake = ctx.alloc().buffer();
+    }
+
+    @Override
+    public void handlerRemoved(final ChannelHandlerContext ctx) {
+        records.release();
+        handshake.release();
+    }
+
+    @Override
+    public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+        if (client) {
+            sniff(msg);
+        }
+        ctx.fireChannelRead(msg);
+        removeWhenDone(ctx);
+    }
+
+    @Override
+    public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) {
+        if (!client) {
+            sniff(msg);
+        }
+        ctx.write(msg, promise);
+        removeWhenDone(ctx);
+    }
+
+    private void removeWhenDone(final ChannelHandlerContext ctx) {
+        if (done && !ctx.isRemoved()) {
+            ctx.pipeline().remove(this);
+        }
+    }
+
+    private void sniff(final Object msg) {
+        if (done || !(msg instanceof ByteBuf)) {
+            return;
+        }
+        final ByteBuf buffer = (ByteBuf) msg;
+        records.writeBytes(buffer, buffer.readerIndex(), buffer.readableBytes());
+        try {
+            readRecords();
+        } catch (final IndexOutOfBoundsException e) {
+            // Not a hello we understand, count it as a full handshake
+            done = true;
+        }
+        if (!done && records.readableBytes() + handshake.readableBytes() > MAX_BUFFERED_BYTES) {
+            done = true;
+        }
+        records.discardSomeReadBytes();
+        handshake.discardSomeReadBytes();
+    }
+
+    private void readRecords() {
+        while (!done && records.readableBytes() >= RECORD_HEADER_LENGTH) {
+            final int length = records.getUnsignedShort(records.readerIndex() + 3);
+            if (records.readableBytes() < RECORD_HEADER_LENGTH + length) {
+                return;
+            }
+            final short type = records.readUnsignedByte();
+            records.skipBytes(RECORD_HEADER_LENGTH - 1);
+            final ByteBuf fragment = records.readSlice(length);
+            if (type == HANDSHAKE) {
+                handshake.writeBytes(fragment);
+                readHandshakeMessages();
+            } else if (type == CHANGE_CIPHER_SPEC) {
+                // TLS 1.3 servers may send one after a HelloRetryRequest, so only the TLS 1.2 hello counts
+                if (tls12ServerHello) {
+                    complete(true);
+                }
+            } else {
+                done = true;
+            }
+        }
+    }
+
+    private void readHandshakeMessages() {
+        while (!done && handshake.readableBytes() >= HANDSHAKE_HEADER_LENGTH) {
+            final short type = handshake.getUnsignedByte(handshake.readerIndex());
+            if (tls12ServerHello) {
+                // A full handshake continues with the certificate or the key exchange
+                complete(type == NEW_SESSION_TICKET);
+                return;
+            }
+            final int length = handshake.getUnsignedMedium(handshake.readerIndex() + 1);
+            if (handshake.readableBytes() < HANDSHAKE_HEADER_LENGTH + length) {
+                return;
+            }
+            handshake.skipBytes(HANDSHAKE_HEADER_LENGTH);
+            final ByteBuf body = handshake.readSlice(length);
+            if (type == SERVER_HELLO) {
+                readServerHello(body);
+            }
+        }
+    }
+
+    private void readServerHello(final ByteBuf body) {
+        body.skipBytes(2); // legacy version
+        if (ByteBufUtil.equals(body.readSlice(RANDOM_LENGTH), HELLO_RETRY_REQUEST.duplicate())) {
+            return;
+        }
+        body.skipBytes(body.readUnsignedByte()); // session ID
+        body.skipBytes(3); // cipher suite and compression method
+        boolean tls13 = false;
+        boolean preSharedKey = false;
+        if (body.isReadable()) {
+            final ByteBuf extensions = body.readSlice(body.readUnsignedShort());
+            while (extensions.isReadable()) {
+                final int type = extensions.readUnsignedShort();
+                final ByteBuf data = extensions.readSlice(extensions.readUnsignedShort());
+                tls13 |= type == SUPPORTED_VERSIONS && data.getUnsignedShort(data.readerIndex()) == TLS_1_3;
+                preSharedKey |= type == PRE_SHARED_KEY;
+            }
+        }
+        if (tls13) {
+            complete(preSharedKey);
+        } else {
+            tls12ServerHello = true;
+        }
+    }
+
+    private void complete(final boolean resumed) {
+        this.resumed = resumed;
+        this.done = true;
+    }
+}
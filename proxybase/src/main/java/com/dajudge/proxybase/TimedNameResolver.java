@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.metrics.Counter;
+import com.dajudge.proxybase.metrics.Timer;
+import io.netty.resolver.NameResolver;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+
+import java.net.InetAddress;
+import java.util.List;
+
+import static com.dajudge.proxybase.metrics.Metrics.counter;
+import static com.dajudge.proxybase.metrics.Metrics.timer;
+
+class TimedNameResolver implements NameResolver<InetAddress> {
+    private final Timer latency = timer("dns_resolve");
+    private final Counter failures = counter("dns_resolve_failures");
+    private final NameResolver<InetAddress> delegate;
+
+    TimedNameResolver(final NameResolver<InetAddress> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Future<InetAddress> resolve(final String inetHost) {
+        final long start = System.nanoTime();
+        return timed(start, delegate.resolve(inetHost));
+    }
+
+    @Override
+    public Future<InetAddress> resolve(final String inetHost, final Promise<InetAddress> promise) {
+        final long start = System.nanoTime();
+        return timed(start, delegate.resolve(inetHost, promise));
+    }
+
+    @Override
+    public Future<List<InetAddress>> resolveAll(final String inetHost) {
+        final long start = System.nanoTime();
+        return timed(start, delegate.resolveAll(inetHost));
+    }
+
+    @Override
+    public Future<List<InetAddress>> resolveAll(final String inetHost, final Promise<List<InetAddress>> promise) {
+        final long start = System.nanoTime();
+        return timed(start, delegate.resolveAll(inetHost, promise));
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    private <T> Future<T> timed(final long start, final Future<T> future) {
+        future.addListener(result -> {
+            latency.record(System.nanoTime() - start);
+            if (!result.isSuccess()) {
+                failures.increment();
+            }
+        });
+        return future;
+    }
+}
@@ -22,4 +22,11 @@ import javax.net.ssl.SSLPeerUnverifiedException;
 public interface CertificateAuthority {
     KeyStoreWrapper createClientCertificate(UpstreamCertificateSupplier certificateSupplier)
             throws SSLPeerUnverifiedException;
+
+    default boolean hasStaticIdentity() {
+        return false;
+    }
+
+    default void close() {
+    }
 }
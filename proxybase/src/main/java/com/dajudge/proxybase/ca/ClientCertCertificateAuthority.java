@@ -38,6 +38,11 @@ public class ClientCertCertificateAuthority implements CertificateAuthority {
         }
     }
 
+    @Override
+    public boolean hasStaticIdentity() {
+        return true;
+    }
+
     @Override
     public KeyStoreWrapper createClientCertificate(
             final UpstreamCertificateSupplier certificateSupplier
@@ -24,6 +24,11 @@ import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 
 public class NullCertificateAuthority implements CertificateAuthority {
+    @Override
+    public boolean hasStaticIdentity() {
+        return true;
+    }
+
     @Override
     public KeyStoreWrapper createClientCertificate(
             final UpstreamCertificateSupplier certificateSupplier
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase.config;
+
+public class ConnectConfig {
+    public static final ConnectConfig DEFAULT = new ConnectConfig(1024 * 1024, 10000, 5, 10000);
+
+    private final int pendingBytesLimit;
+    private final int connectTimeoutMillis;
+    private final int circuitBreakerFailures;
+    private final int circuitBreakerOpenMillis;
+
+    public ConnectConfig(
+            final int pendingBytesLimit,
+            final int connectTimeoutMillis,
+            final int circuitBreakerFailures,
+            final int circuitBreakerOpenMillis
+    ) {
+        if (connectTimeoutMillis < 1) {
+            throw new IllegalArgumentException("Connect timeout must be positive: " + connectTimeoutMillis);
+        }
+        if (circuitBreakerFailures < 0) {
+            throw new IllegalArgumentException("Circuit breaker failures must not be negative: "
+                    + circuitBreakerFailures);
+        }
+        if (circuitBreakerOpenMillis < 0) {
+            throw new IllegalArgumentException("Circuit breaker open time must not be negative: "
+                    + circuitBreakerOpenMillis);
+        }
+        this.pendingBytesLimit = pendingBytesLimit;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.circuitBreakerFailures = circuitBreakerFailures;
+        this.circuitBreakerOpenMillis = circuitBreakerOpenMillis;
+    }
+
+    public int getPendingBytesLimit() {
+        return pendingBytesLimit;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public int getCircuitBreakerFailures() {
+        return circuitBreakerFailures;
+    }
+
+    public int getCircuitBreakerOpenMillis() {
+        return circuitBreakerOpenMillis;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase.config;
+
+public class ConnectionPoolConfig {
+    public static final ConnectionPoolConfig DISABLED = new ConnectionPoolConfig(0, 60000, 10);
+
+    private final int size;
+    private final int idleTimeoutMillis;
+    private final int refillRate;
+
+    public ConnectionPoolConfig(final int size, final int idleTimeoutMillis, final int refillRate) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Connection pool size must not be negative: " + size);
+        }
+        if (idleTimeoutMillis < 1) {
+            throw new IllegalArgumentException("Connection pool idle timeout must be positive: " + idleTimeoutMillis);
+        }
+        if (refillRate < 1 || refillRate > 1000) {
+            throw new IllegalArgumentException("Connection pool refill rate must be between 1 and 1000: " + refillRate);
+        }
+        this.size = size;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.refillRate = refillRate;
+    }
+
+    public boolean isEnabled() {
+        return size > 0;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public int getRefillRate() {
+        return refillRate;
+    }
+}
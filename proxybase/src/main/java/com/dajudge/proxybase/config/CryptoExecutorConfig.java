@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase.config;
+
+public class CryptoExecutorConfig {
+    public static final CryptoExecutorConfig DEFAULT = new CryptoExecutorConfig(2, 1024);
+
+    private final int threads;
+    private final int queueSize;
+
+    public CryptoExecutorConfig(final int threads, final int queueSize) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Crypto thread count must be positive: " + threads);
+        }
+        if (queueSize < 1) {
+            throw new IllegalArgumentException("Crypto queue size must be positive: " + queueSize);
+        }
+        this.threads = threads;
+        this.queueSize = queueSize;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+}
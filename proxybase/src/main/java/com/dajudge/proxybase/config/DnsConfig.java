@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase.config;
+
+public class DnsConfig {
+    public static final DnsConfig DEFAULT = new DnsConfig(0, 86400, 5);
+
+    private final int minTtl;
+    private final int maxTtl;
+    private final int negativeTtl;
+
+    public DnsConfig(final int minTtl, final int maxTtl, final int negativeTtl) {
+        if (minTtl < 0 || maxTtl < minTtl || negativeTtl < 0) {
+            throw new IllegalArgumentException("Invalid DNS TTL configuration: min=" + minTtl
+                    + ", max=" + maxTtl + ", negative=" + negativeTtl);
+        }
+        this.minTtl = minTtl;
+        this.maxTtl = maxTtl;
+        this.negativeTtl = negativeTtl;
+    }
+
+    public int getMinTtl() {
+        return minTtl;
+    }
+
+    public int getMaxTtl() {
+        return maxTtl;
+    }
+
+    public int getNegativeTtl() {
+        return negativeTtl;
+    }
+}
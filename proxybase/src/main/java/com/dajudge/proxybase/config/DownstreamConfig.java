@@ -25,24 +25,35 @@ public class DownstreamConfig {
     private final Supplier<InputStream> trustStore;
     private final String trustStorePassword;
     private final boolean hostnameVerificationEnabled;
+    private final int sslContextCacheSize;
+    private final TlsProvider provider;
 
     public static final DownstreamConfig DISABLED = new DownstreamConfig(
             false,
             null,
             null,
-            false
+            false,
+            0,
+            TlsProvider.JDK
     );
 
     public DownstreamConfig(
             final boolean enabled,
             final Supplier<InputStream> trustStore,
             final String trustStorePassword,
-            final boolean hostnameVerificationEnabled
+            final boolean hostnameVerificationEnabled,
+            final int sslContextCacheSize,
+            final TlsProvider provider
     ) {
+        if (sslContextCacheSize < 0) {
+            throw new IllegalArgumentException("SSL context cache size must not be negative: " + sslContextCacheSize);
+        }
         this.enabled = enabled;
         this.trustStore = trustStore;
         this.trustStorePassword = trustStorePassword;
         this.hostnameVerificationEnabled = hostnameVerificationEnabled;
+        this.sslContextCacheSize = sslContextCacheSize;
+        this.provider = provider;
     }
 
     public Supplier<InputStream> getTrustStore() {
@@ -60,4 +71,12 @@ public class DownstreamConfig {
     public boolean isHostnameVerificationEnabled() {
         return hostnameVerificationEnabled;
     }
+
+    public int getSslContextCacheSize() {
+        return sslContextCacheSize;
+    }
+
+    public TlsProvider getProvider() {
+        return provider;
+    }
 }
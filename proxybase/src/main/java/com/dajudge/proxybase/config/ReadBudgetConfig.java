@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase.config;
+
+public class ReadBudgetConfig {
+    public static final ReadBudgetConfig DEFAULT = new ReadBudgetConfig(256 * 1024, 16);
+
+    private final int maxBytesPerRead;
+    private final int maxMessagesPerRead;
+
+    public ReadBudgetConfig(final int maxBytesPerRead, final int maxMessagesPerRead) {
+        if (maxBytesPerRead < 1024) {
+            throw new IllegalArgumentException("Read budget must be at least 1024 bytes: " + maxBytesPerRead);
+        }
+        if (maxMessagesPerRead < 1) {
+            throw new IllegalArgumentException("Read budget must allow at least one message: " + maxMessagesPerRead);
+        }
+        this.maxBytesPerRead = maxBytesPerRead;
+        this.maxMessagesPerRead = maxMessagesPerRead;
+    }
+
+    public int getMaxBytesPerRead() {
+        return maxBytesPerRead;
+    }
+
+    public int getMaxMessagesPerRead() {
+        return maxMessagesPerRead;
+    }
+}
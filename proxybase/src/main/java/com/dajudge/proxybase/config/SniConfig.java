@@ -0,0 +1,54 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase.config;
+
+public class SniConfig {
+    public static final String ID_PLACEHOLDER = "{id}";
+    public static final SniConfig DISABLED = new SniConfig(0, null);
+
+    private final int port;
+    private final String hostnamePattern;
+
+    public SniConfig(final int port, final String hostnamePattern) {
+        if (port < 0 || port > 65535) {
+            throw new IllegalArgumentException("SNI port must be between 0 and 65535: " + port);
+        }
+        if (port > 0 && (hostnamePattern == null || !hostnamePattern.contains(ID_PLACEHOLDER))) {
+            throw new IllegalArgumentException("SNI hostname pattern must contain " + ID_PLACEHOLDER + ": "
+                    + hostnamePattern);
+        }
+        this.port = port;
+        this.hostnamePattern = hostnamePattern;
+    }
+
+    public boolean isEnabled() {
+        return port > 0;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getHostnamePattern() {
+        return hostnamePattern;
+    }
+
+    public String hostnameOf(final int id) {
+        return hostnamePattern.replace(ID_PLACEHOLDER, String.valueOf(id));
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase.config;
+
+import java.io.InputStream;
+import java.util.function.Supplier;
+
+public class SslSessionConfig {
+    public static final SslSessionConfig DEFAULT = new SslSessionConfig(20480, 86400, null, 3600);
+
+    private final int cacheSize;
+    private final int timeoutSeconds;
+    private final Supplier<InputStream> ticketKeys;
+    private final int ticketKeyLifetimeSeconds;
+
+    public SslSessionConfig(
+            final int cacheSize,
+            final int timeoutSeconds,
+            final Supplier<InputStream> ticketKeys,
+            final int ticketKeyLifetimeSeconds
+    ) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("SSL session cache size must not be negative: " + cacheSize);
+        }
+        if (timeoutSeconds < 0) {
+            throw new IllegalArgumentException("SSL session timeout must not be negative: " + timeoutSeconds);
+        }
+        if (ticketKeyLifetimeSeconds < 1) {
+            throw new IllegalArgumentException("SSL session ticket key lifetime must be positive: "
+                    + ticketKeyLifetimeSeconds);
+        }
+        this.cacheSize = cacheSize;
+        this.timeoutSeconds = timeoutSeconds;
+        this.ticketKeys = ticketKeys;
+        this.ticketKeyLifetimeSeconds = ticketKeyLifetimeSeconds;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public int getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public Supplier<InputStream> getTicketKeys() {
+        return ticketKeys;
+    }
+
+    public int getTicketKeyLifetimeSeconds() {
+        return ticketKeyLifetimeSeconds;
+    }
+}
@@ -28,7 +28,9 @@ public class UpstreamConfig {
             null,
             null,
             null,
-            false
+            false,
+            TlsProvider.JDK,
+            SslSessionConfig.DEFAULT
     );
 
     private final boolean enabled;
@@ -38,6 +40,8 @@ public class UpstreamConfig {
     private final String keyStorePassword;
     private final String keyPassword;
     private final boolean clientAuthRequired;
+    private final TlsProvider provider;
+    private final SslSessionConfig sessionConfig;
 
     public UpstreamConfig(
             final boolean enabled,
@@ -46,7 +50,9 @@ public class UpstreamConfig {
             final Supplier<InputStream> keyStore,
             final String keyStorePassword,
             final String keyPassword,
-            final boolean clientAuthRequired
+            final boolean clientAuthRequired,
+            final TlsProvider provider,
+            final SslSessionConfig sessionConfig
     ) {
         this.enabled = enabled;
         this.trustStore = trustStore;
@@ -55,6 +61,8 @@ public class UpstreamConfig {
         this.keyStorePassword = keyStorePassword;
         this.keyPassword = keyPassword;
         this.clientAuthRequired = clientAuthRequired;
+        this.provider = provider;
+        this.sessionConfig = sessionConfig;
     }
 
     public boolean isEnabled() {
@@ -84,4 +92,12 @@ public class UpstreamConfig {
     public boolean isClientAuthRequired() {
         return clientAuthRequired;
     }
+
+    public TlsProvider getProvider() {
+        return provider;
+    }
+
+    public SslSessionConfig getSessionConfig() {
+        return sessionConfig;
+    }
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase.metrics;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+public class Gauge implements Metric {
+    private final Set<LongSupplier> values = ConcurrentHashMap.newKeySet();
+
+    public void add(final LongSupplier value) {
+        values.add(value);
+    }
+
+    public void remove(final LongSupplier value) {
+        values.remove(value);
+    }
+
+    public long get() {
+        return values.stream().mapToLong(LongSupplier::getAsLong).sum();
+    }
+
+    @Override
+    public void report(final String name, final BiConsumer<String, Long> values) {
+        values.accept(name, get());
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase.metrics;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+public final class Metrics {
+    private static final Map<String, Metric> METRICS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static Counter counter(final String name) {
+        return register(name, Counter.class, Counter::new);
+    }
+
+    public static Timer timer(final String name) {
+        return register(name, Timer.class, Timer::new);
+    }
+
+    public static Gauge gauge(final String name) {
+        return register(name, Gauge.class, Gauge::new);
+    }
+
+    public static SortedMap<String, Long> snapshot() {
+        final SortedMap<String, Long> snapshot = new TreeMap<>();
+        METRICS.forEach((name, metric) -> metric.report(name, snapshot::put));
+        return snapshot;
+    }
+
+    private static <T extends Metric> T register(
+            final String name,
+            final Class<T> type,
+            final Supplier<T> factory
+    ) {
+        final Metric metric = METRICS.computeIfAbsent(name, it -> factory.get());
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException("Metric " + name + " is not a " + type.getSimpleName());
+        }
+        return type.cast(metric);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.config.ConnectConfig;
+import com.dajudge.proxybase.config.Endpoint;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class BalancingProxyChannelTest {
+    @Test
+    public void spreads_connections_across_targets() throws Exception {
+        try (
+                final EchoServer first = new EchoServer();
+                final EchoServer second = new EchoServer();
+                final TestProxyApplication proxy = TestProxyApplication.startBalanced(
+                        first.getEndpoint(),
+                        second.getEndpoint()
+                );
+                final Socket firstClient = connect(proxy.getPort(2));
+                final Socket secondClient = connect(proxy.getPort(2))
+        ) {
+            assertEquals(1, first.getAcceptedConnections());
+            assertEquals(1, second.getAcceptedConnections());
+        }
+    }
+
+    @Test
+    public void skips_targets_with_open_circuit_breaker() throws Exception {
+        final int closedPort;
+        try (final ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        try (
+                final EchoServer healthy = new EchoServer();
+                final TestProxyApplication proxy = TestProxyApplication.startBalanced(
+                        new ConnectConfig(1024 * 1024, 10000, 1, 60000),
+                        new Endpoint("localhost", closedPort),
+                        healthy.getEndpoint()
+                )
+        ) {
+            try (final Socket client = new Socket("localhost", proxy.getPort(0))) {
+                client.setSoTimeout((int) SECONDS.toMillis(10));
+                client.getOutputStream().write(new byte[]{1});
+                assertEquals(-1, readOrEof(client.getInputStream()));
+            }
+            assertFalse(proxy.getProxyChannel(0).isHealthy());
+
+            final List<Socket> clients = new ArrayList<>();
+            try {
+                for (int i = 0; i < 4; i++) {
+                    clients.add(connect(proxy.getPort(2)));
+                }
+                assertEquals(4, healthy.getAcceptedConnections());
+            } finally {
+                for (final Socket client : clients) {
+                    client.close();
+                }
+            }
+        }
+    }
+
+    private static int readOrEof(final InputStream is) throws IOException {
+        try {
+            return is.read();
+        } catch (final IOException e) {
+            return -1;
+        }
+    }
+
+    private static Socket connect(final int port) throws IOException {
+        final Socket client = new Socket("localhost", port);
+        client.setSoTimeout((int) SECONDS.toMillis(10));
+        final byte[] ping = {1, 2, 3};
+        final byte[] pong = new byte[ping.length];
+        client.getOutputStream().write(ping);
+        new DataInputStream(client.getInputStream()).readFully(pong);
+        assertArrayEquals(ping, pong);
+        return client;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.config.DnsConfig;
+import com.dajudge.proxybase.metrics.Metrics;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.resolver.dns.SingletonDnsServerAddressStreamProvider;
+import io.netty.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CachingAddressResolverGroupTest {
+    private static final String KNOWN_NAME = "broker.kafkaproxy.test.";
+    private static final String UNKNOWN_NAME = "missing.kafkaproxy.test.";
+    private final NioEventLoopGroup eventLoopGroup = new NioEventLoopGroup(1);
+    private final StubDnsServer dnsServer = new StubDnsServer(KNOWN_NAME);
+    private final CachingAddressResolverGroup resolverGroup = new CachingAddressResolverGroup(
+            DnsConfig.DEFAULT,
+            new SingletonDnsServerAddressStreamProvider(dnsServer.getAddress())
+    );
+
+    @After
+    public void close() throws InterruptedException {
+        resolverGroup.close();
+        dnsServer.close();
+        eventLoopGroup.shutdownGracefully().sync();
+    }
+
+    @Test
+    public void second_lookup_is_served_from_cache() throws Exception {
+        final long hitsBefore = Metrics.counter("dns_cache_hits").get();
+        final InetSocketAddress first = resolve(KNOWN_NAME).sync().getNow();
+        final int queries = dnsServer.getQueries(KNOWN_NAME);
+        final InetSocketAddress second = resolve(KNOWN_NAME).sync().getNow();
+        assertTrue(first.getAddress().isLoopbackAddress());
+        assertEquals(first.getAddress(), second.getAddress());
+        assertTrue(queries > 0);
+        assertEquals(queries, dnsServer.getQueries(KNOWN_NAME));
+        assertTrue(Metrics.counter("dns_cache_hits").get() > hitsBefore);
+    }
+
+    @Test
+    public void nxdomain_is_negatively_cached() throws Exception {
+        final Future<InetSocketAddress> first = resolve(UNKNOWN_NAME).await();
+        final int queries = dnsServer.getQueries(UNKNOWN_NAME);
+        final Future<InetSocketAddress> second = resolve(UNKNOWN_NAME).await();
+        assertFalse(first.isSuccess());
+        assertFalse(second.isSuccess());
+        assertTrue(second.cause() instanceof UnknownHostException);
+        assertTrue(queries > 0);
+        assertEquals(queries, dnsServer.getQueries(UNKNOWN_NAME));
+    }
+
+    private Future<InetSocketAddress> resolve(final String hostname) {
+        return resolverGroup.getResolver(eventLoopGroup.next())
+                .resolve(InetSocketAddress.createUnresolved(hostname, 9092));
+    }
+    @Test
+    public void resolves_and_records_latency() throws Exception {
+        final long resolvesBefore = Metrics.timer("dns_resolve").getCount();
+        final InetSocketAddress address = resolve("localhost").sync().getNow();
+        assertTrue(address.getAddress().isLoopbackAddress());
+        assertEquals(9092, address.getPort());
+        assertEquals(resolvesBefore + 1, Metrics.timer("dns_resolve").getCount());
+        assertTrue(Metrics.snapshot().containsKey("dns_resolve_count"));
+    }
+}
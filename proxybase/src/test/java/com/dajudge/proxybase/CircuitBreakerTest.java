@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.config.Endpoint;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(new Endpoint("localhost", 9092), 2, 100);
+
+    @Test
+    public void opens_after_consecutive_failures() {
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onFailure();
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onFailure();
+        assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    public void allows_single_probe_after_open_time() throws InterruptedException {
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        Thread.sleep(150);
+        assertTrue(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+        circuitBreaker.onSuccess();
+        assertTrue(circuitBreaker.tryAcquire());
+        assertTrue(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    public void reopens_when_probe_fails() throws InterruptedException {
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        Thread.sleep(150);
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onFailure();
+        assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    public void allows_next_probe_when_probe_is_cancelled() throws InterruptedException {
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        Thread.sleep(150);
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onCancel();
+        assertTrue(circuitBreaker.tryAcquire());
+    }
+}
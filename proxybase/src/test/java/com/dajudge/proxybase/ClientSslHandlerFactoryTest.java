@@ -0,0 +1,195 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.ca.KeyStoreWrapper;
+import com.dajudge.proxybase.config.CryptoExecutorConfig;
+import com.dajudge.proxybase.config.DownstreamConfig;
+import com.dajudge.proxybase.config.Endpoint;
+import com.dajudge.proxybase.config.TlsProvider;
+import com.dajudge.proxybase.metrics.Metrics;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.netty.util.concurrent.Future;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class ClientSslHandlerFactoryTest {
+    private static final String PASSWORD = "changeit";
+    private static final Endpoint BROKER = new Endpoint("localhost", 9092);
+    private static final CryptoExecutor CRYPTO_EXECUTOR = new CryptoExecutor(CryptoExecutorConfig.DEFAULT);
+    private SelfSignedCertificate certificate;
+    private KeyStoreWrapper identity;
+    private DownstreamConfig config;
+
+    @Before
+    public void setup() throws Exception {
+        certificate = new SelfSignedCertificate();
+        final KeyStore keyStore = KeyStore.getInstance("jks");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry("client", certificate.key(), PASSWORD.toCharArray(), new Certificate[]{
+                certificate.cert()
+        });
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        keyStore.store(bos, PASSWORD.toCharArray());
+        final byte[] jks = bos.toByteArray();
+        identity = new KeyStoreWrapper(keyStore, PASSWORD);
+        config = new DownstreamConfig(true, () -> new ByteArrayInputStream(jks), PASSWORD, false, 1, TlsProvider.JDK);
+    }
+
+    @Test
+    public void reuses_context_for_same_broker_and_identity() throws Exception {
+        final ClientSslHandlerFactory factory = new ClientSslHandlerFactory(config, CRYPTO_EXECUTOR);
+        final long missesBefore = misses();
+
+        factory.getContext(BROKER, identity).sync();
+        factory.getContext(BROKER, identity).sync();
+
+        assertEquals(missesBefore + 1, misses());
+    }
+
+    @Test
+    public void shares_context_build_between_concurrent_misses() throws Exception {
+        final CryptoExecutor executor = new CryptoExecutor(new CryptoExecutorConfig(1, 16));
+        final CountDownLatch blocked = new CountDownLatch(1);
+        try {
+            executor.submit(() -> {
+                blocked.await();
+                return null;
+            });
+            final ClientSslHandlerFactory factory = new ClientSslHandlerFactory(config, executor);
+            final long missesBefore = misses();
+
+            final Future<SslContext> first = factory.getContext(BROKER, identity);
+            final Future<SslContext> second = factory.getContext(BROKER, identity);
+            blocked.countDown();
+
+            assertSame(first.sync().getNow(), second.sync().getNow());
+            assertEquals(missesBefore + 1, misses());
+        } finally {
+            blocked.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void retries_failed_context_build() throws Exception {
+        final ClientSslHandlerFactory factory = new ClientSslHandlerFactory(config, CRYPTO_EXECUTOR);
+        final KeyStoreWrapper wrongPassword = new KeyStoreWrapper(identity.getKeyStore(), "wrong");
+        final long missesBefore = misses();
+
+        assertFalse(factory.getContext(BROKER, wrongPassword).await().isSuccess());
+        assertFalse(factory.getContext(BROKER, wrongPassword).await().isSuccess());
+
+        assertEquals(missesBefore + 2, misses());
+    }
+
+    @Test
+    public void evicts_least_recently_used_context() throws Exception {
+        final ClientSslHandlerFactory factory = new ClientSslHandlerFactory(config, CRYPTO_EXECUTOR);
+        final long missesBefore = misses();
+
+        factory.getContext(BROKER, identity).sync();
+        factory.getContext(new Endpoint("localhost", 9093), identity).sync();
+        factory.getContext(BROKER, identity).sync();
+
+        assertEquals(missesBefore + 3, misses());
+    }
+
+    @Test
+    public void resumes_session_with_same_broker() throws Exception {
+        final NioEventLoopGroup group = new NioEventLoopGroup(1);
+        try {
+            final SslContext serverContext = SslContextBuilder
+                    .forServer(certificate.certificate(), certificate.privateKey())
+                    .build();
+            final Channel server = new ServerBootstrap()
+                    .group(group)
+                    .channel(NioServerSocketChannel.class)
+                    .childHandler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(final SocketChannel ch) {
+                            ch.pipeline().addLast(serverContext.newHandler(ch.alloc()));
+                        }
+                    })
+                    .bind("localhost", 0)
+                    .sync()
+                    .channel();
+            final Endpoint broker = new Endpoint("localhost", ((InetSocketAddress) server.localAddress()).getPort());
+            final ClientSslHandlerFactory factory = new ClientSslHandlerFactory(config, CRYPTO_EXECUTOR);
+            final long fullBefore = counter("downstream_ssl_handshakes_full");
+            final long resumedBefore = counter("downstream_ssl_handshakes_resumed");
+
+            handshake(group, factory, broker);
+            handshake(group, factory, broker);
+
+            assertEquals(fullBefore + 1, counter("downstream_ssl_handshakes_full"));
+            assertEquals(resumedBefore + 1, counter("downstream_ssl_handshakes_resumed"));
+            server.close().sync();
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    private void handshake(
+            final NioEventLoopGroup group,
+            final ClientSslHandlerFactory factory,
+            final Endpoint broker
+    ) throws Exception {
+        final SslContext context = factory.getContext(broker, identity).sync().getNow();
+        final Channel channel = new Bootstrap()
+                .group(group)
+                .channel(NioSocketChannel.class)
+                .handler(factory.createHandler(broker, context, ByteBufAllocator.DEFAULT))
+                .connect(broker.getHost(), broker.getPort())
+                .sync()
+                .channel();
+        channel.pipeline().get(SslHandler.class).handshakeFuture().sync();
+        channel.close().sync();
+    }
+
+    private static long misses() {
+        return counter("downstream_ssl_context_misses");
+    }
+
+    private static long counter(final String name) {
+        return Metrics.counter(name).get();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.config.CryptoExecutorConfig;
+import io.netty.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CryptoExecutorTest {
+    private final CryptoExecutor executor = new CryptoExecutor(new CryptoExecutorConfig(1, 1));
+
+    @After
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void completes_future_off_the_calling_thread() throws Exception {
+        final Thread caller = Thread.currentThread();
+
+        final Future<Thread> worker = executor.submit(Thread::currentThread).sync();
+
+        assertNotEquals(caller, worker.getNow());
+    }
+
+    @Test
+    public void rejects_tasks_when_queue_is_full() throws Exception {
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Future<Boolean> blocking = executor.submit(() -> {
+            running.countDown();
+            return release.await(10, SECONDS);
+        });
+        running.await();
+        final Future<String> queued = executor.submit(() -> "queued");
+
+        final Future<String> rejected = executor.submit(() -> "rejected");
+
+        assertTrue(rejected.cause() instanceof RejectedExecutionException);
+        release.countDown();
+        assertTrue(blocking.sync().getNow());
+        assertEquals("queued", queued.sync().getNow());
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.config.Endpoint;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
+import org.junit.Test;
+
+import static io.netty.buffer.Unpooled.buffer;
+import static org.junit.Assert.assertEquals;
+
+public class DownstreamClientTest {
+    private static final Sink<ByteBuf> NULL_SINK = new Sink<ByteBuf>() {
+        @Override
+        public Future<?> close() {
+            return ImmediateEventExecutor.INSTANCE.newSucceededFuture(null);
+        }
+
+        @Override
+        public void accept(final ByteBuf buffer) {
+        }
+    };
+
+    private final Promise<Channel> connectFuture = ImmediateEventExecutor.INSTANCE.newPromise();
+    private final DownstreamClient client = new DownstreamClient(
+            new Endpoint("broker", 9092),
+            NULL_SINK,
+            connectFuture,
+            1024
+    );
+
+    @Test
+    public void flushes_buffers_released_by_caller_while_connecting() {
+        final ByteBuf inbound = buffer().writeInt(42);
+
+        forwardWithoutCopy(inbound);
+        final EmbeddedChannel channel = new EmbeddedChannel();
+        connectFuture.setSuccess(channel);
+
+        final ByteBuf outbound = channel.readOutbound();
+        assertEquals(42, outbound.getInt(0));
+        outbound.release();
+        assertEquals(0, inbound.refCnt());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void releases_pending_buffers_on_close() {
+        final ByteBuf inbound = buffer().writeInt(42);
+
+        forwardWithoutCopy(inbound);
+        client.close();
+
+        assertEquals(0, inbound.refCnt());
+    }
+
+    private void forwardWithoutCopy(final ByteBuf inbound) {
+        try {
+            client.accept(inbound);
+        } finally {
+            inbound.release();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.config.ConnectConfig;
+import com.dajudge.proxybase.config.ConnectionPoolConfig;
+import com.dajudge.proxybase.config.Endpoint;
+import com.dajudge.proxybase.config.ReadBudgetConfig;
+import com.dajudge.proxybase.metrics.Metrics;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DownstreamConnectTest {
+    private static final long MAX_ROUNDTRIP_MILLIS = 1000;
+
+    @Test
+    public void slow_broker_connect_does_not_stall_other_connections() throws Exception {
+        final List<Socket> stalledClients = new ArrayList<>();
+        try (
+                final UnresponsiveServer slowBroker = new UnresponsiveServer();
+                final EchoServer echoServer = new EchoServer();
+                final TestProxyApplication proxy = TestProxyApplication.start(
+                        ReadBudgetConfig.DEFAULT,
+                        slowBroker.getEndpoint(),
+                        echoServer.getEndpoint()
+                )
+        ) {
+            // Occupy every upstream event loop with a connection that waits for the slow broker
+            final int connections = Runtime.getRuntime().availableProcessors() * 4;
+            for (int i = 0; i < connections; i++) {
+                final Socket stalledClient = new Socket("localhost", proxy.getPort(0));
+                stalledClient.getOutputStream().write(new byte[]{1, 2, 3});
+                stalledClients.add(stalledClient);
+            }
+            for (int i = 0; i < connections; i++) {
+                final long start = nanoTime();
+                try (final Socket client = new Socket("localhost", proxy.getPort(1))) {
+                    client.setSoTimeout((int) SECONDS.toMillis(10));
+                    final byte[] ping = {(byte) i, 1, 2, 3};
+                    final byte[] pong = new byte[ping.length];
+                    client.getOutputStream().write(ping);
+                    new DataInputStream(client.getInputStream()).readFully(pong);
+                    assertArrayEquals(ping, pong);
+                }
+                final long roundtripMillis = NANOSECONDS.toMillis(nanoTime() - start);
+                assertTrue("Roundtrip took " + roundtripMillis + "ms", roundtripMillis < MAX_ROUNDTRIP_MILLIS);
+            }
+        } finally {
+            for (final Socket stalledClient : stalledClients) {
+                stalledClient.close();
+            }
+        }
+    }
+
+    @Test
+    public void client_is_disconnected_when_broker_is_unreachable() throws Exception {
+        final int closedPort;
+        try (final ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        try (
+                final TestProxyApplication proxy = TestProxyApplication.start(
+                        ReadBudgetConfig.DEFAULT,
+                        new Endpoint("localhost", closedPort)
+                );
+                final Socket client = new Socket("localhost", proxy.getPort(0))
+        ) {
+            client.setSoTimeout((int) SECONDS.toMillis(10));
+            final InputStream is = client.getInputStream();
+            assertEquals(-1, readOrEof(is));
+        }
+    }
+
+    @Test
+    public void client_is_disconnected_when_broker_connect_times_out() throws Exception {
+        try (
+                final UnresponsiveServer slowBroker = new UnresponsiveServer();
+                final TestProxyApplication proxy = TestProxyApplication.start(
+                        ReadBudgetConfig.DEFAULT,
+                        new ConnectConfig(1024 * 1024, 200, 0, 0),
+                        ConnectionPoolConfig.DISABLED,
+                        slowBroker.getEndpoint()
+                );
+                final Socket client = new Socket("localhost", proxy.getPort(0))
+        ) {
+            client.setSoTimeout((int) SECONDS.toMillis(10));
+            final long start = nanoTime();
+            assertEquals(-1, readOrEof(client.getInputStream()));
+            final long elapsedMillis = NANOSECONDS.toMillis(nanoTime() - start);
+            assertTrue("Disconnect took " + elapsedMillis + "ms", elapsedMillis < 5000);
+        }
+    }
+
+    @Test
+    public void open_circuit_breaker_rejects_connections() throws Exception {
+        final int closedPort;
+        try (final ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        try (
+                final TestProxyApplication proxy = TestProxyApplication.start(
+                        ReadBudgetConfig.DEFAULT,
+                        new ConnectConfig(1024 * 1024, 10000, 2, 60000),
+                        ConnectionPoolConfig.DISABLED,
+                        new Endpoint("localhost", closedPort)
+                )
+        ) {
+            for (int i = 0; i < 2; i++) {
+                try (final Socket client = new Socket("localhost", proxy.getPort(0))) {
+                    client.setSoTimeout((int) SECONDS.toMillis(10));
+                    assertEquals(-1, readOrEof(client.getInputStream()));
+                }
+            }
+            final long rejectionsBefore = Metrics.counter("downstream_connect_rejections").get();
+            try (final Socket client = new Socket("localhost", proxy.getPort(0))) {
+                client.setSoTimeout((int) SECONDS.toMillis(10));
+                assertEquals(-1, readOrEof(client.getInputStream()));
+            }
+            assertEquals(rejectionsBefore + 1, Metrics.counter("downstream_connect_rejections").get());
+        }
+    }
+
+    @Test
+    public void new_connections_follow_downstream_endpoint_change() throws Exception {
+        try (
+                final EchoServer oldBroker = new EchoServer();
+                final EchoServer newBroker = new EchoServer();
+                final TestProxyApplication proxy = TestProxyApplication.start(
+                        ReadBudgetConfig.DEFAULT,
+                        oldBroker.getEndpoint()
+                )
+        ) {
+            proxy.getProxyChannel(0).setDownstreamEndpoint(newBroker.getEndpoint());
+            try (final Socket client = new Socket("localhost", proxy.getPort(0))) {
+                client.setSoTimeout((int) SECONDS.toMillis(10));
+                final byte[] ping = {1, 2, 3, 4};
+                final byte[] pong = new byte[ping.length];
+                client.getOutputStream().write(ping);
+                new DataInputStream(client.getInputStream()).readFully(pong);
+                assertArrayEquals(ping, pong);
+            }
+            assertEquals(0, oldBroker.getAcceptedConnections());
+            assertEquals(1, newBroker.getAcceptedConnections());
+        }
+    }
+
+    private static int readOrEof(final InputStream is) throws IOException {
+        try {
+            return is.read();
+        } catch (final IOException e) {
+            // a reset connection is as good as a closed one here
+            return -1;
+        }
+    }
+}
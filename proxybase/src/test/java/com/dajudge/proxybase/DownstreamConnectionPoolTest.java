@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.config.ConnectConfig;
+import com.dajudge.proxybase.config.ConnectionPoolConfig;
+import com.dajudge.proxybase.config.ReadBudgetConfig;
+import com.dajudge.proxybase.metrics.Metrics;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.net.Socket;
+import java.util.function.BooleanSupplier;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DownstreamConnectionPoolTest {
+    @Test
+    public void client_uses_prewarmed_connection() throws Exception {
+        try (
+                final EchoServer echoServer = new EchoServer();
+                final TestProxyApplication proxy = TestProxyApplication.start(
+                        ReadBudgetConfig.DEFAULT,
+                        ConnectConfig.DEFAULT,
+                        new ConnectionPoolConfig(2, 60000, 100),
+                        echoServer.getEndpoint()
+                )
+        ) {
+            waitFor(() -> echoServer.getAcceptedConnections() == 2);
+            final long hitsBefore = Metrics.counter("downstream_pool_hits").get();
+            try (final Socket client = new Socket("localhost", proxy.getPort(0))) {
+                client.setSoTimeout((int) SECONDS.toMillis(10));
+                final byte[] ping = {1, 2, 3, 4};
+                final byte[] pong = new byte[ping.length];
+                client.getOutputStream().write(ping);
+                new DataInputStream(client.getInputStream()).readFully(pong);
+                assertArrayEquals(ping, pong);
+            }
+            assertEquals(hitsBefore + 1, Metrics.counter("downstream_pool_hits").get());
+            waitFor(() -> echoServer.getAcceptedConnections() == 3);
+        }
+    }
+
+    @Test
+    public void idle_connections_are_replaced() throws Exception {
+        try (
+                final EchoServer echoServer = new EchoServer();
+                final TestProxyApplication ignored = TestProxyApplication.start(
+                        ReadBudgetConfig.DEFAULT,
+                        ConnectConfig.DEFAULT,
+                        new ConnectionPoolConfig(1, 100, 100),
+                        echoServer.getEndpoint()
+                )
+        ) {
+            waitFor(() -> echoServer.getAcceptedConnections() >= 3);
+        }
+    }
+
+    @Test
+    public void endpoint_change_cancels_pending_connects() throws Exception {
+        try (
+                final UnresponsiveServer oldBroker = new UnresponsiveServer();
+                final EchoServer newBroker = new EchoServer();
+                final TestProxyApplication proxy = TestProxyApplication.start(
+                        ReadBudgetConfig.DEFAULT,
+                        new ConnectConfig(1024 * 1024, 60000, 0, 0),
+                        new ConnectionPoolConfig(1, 60000, 100),
+                        oldBroker.getEndpoint()
+                )
+        ) {
+            Thread.sleep(100);
+            proxy.getProxyChannel(0).setDownstreamEndpoint(newBroker.getEndpoint());
+            waitFor(() -> newBroker.getAcceptedConnections() == 1);
+        }
+    }
+
+    private static void waitFor(final BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + SECONDS.toMillis(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue("Condition not met in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
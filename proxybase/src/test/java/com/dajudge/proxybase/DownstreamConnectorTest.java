@@ -0,0 +1,136 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.config.ConnectConfig;
+import com.dajudge.proxybase.config.DownstreamConfig;
+import com.dajudge.proxybase.config.Endpoint;
+import com.dajudge.proxybase.metrics.Metrics;
+import io.netty.channel.AdaptiveRecvByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.resolver.AbstractAddressResolver;
+import io.netty.resolver.AddressResolver;
+import io.netty.resolver.AddressResolverGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DownstreamConnectorTest {
+    @Test
+    public void first_successful_address_wins() throws Exception {
+        final NioEventLoopGroup group = new NioEventLoopGroup(1);
+        try (final EchoServer echoServer = new EchoServer()) {
+            final Endpoint endpoint = echoServer.getEndpoint();
+            final InetSocketAddress address = new InetSocketAddress("127.0.0.1", endpoint.getPort());
+            final DownstreamConnector connector = new DownstreamConnector(
+                    endpoint,
+                    new ClientSslHandlerFactory(DownstreamConfig.DISABLED, null),
+                    group,
+                    new AdaptiveRecvByteBufAllocator(),
+                    resolvingTo(asList(address, address, address)),
+                    ConnectConfig.DEFAULT
+            );
+
+            final Channel channel = connector
+                    .connect(ImmediateEventExecutor.INSTANCE.newSucceededFuture(null))
+                    .sync()
+                    .getNow();
+            final long deadline = System.currentTimeMillis() + SECONDS.toMillis(10);
+            while (echoServer.getAcceptedConnections() < 3) {
+                assertTrue("Not all addresses were dialed", System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+            Thread.sleep(100);
+
+            assertTrue(channel.isActive());
+            channel.close().sync();
+        } finally {
+            group.shutdownGracefully().sync();
+        }
+    }
+
+    @Test
+    public void cancelled_connect_leaves_circuit_breaker_closed() throws Exception {
+        final NioEventLoopGroup group = new NioEventLoopGroup(1);
+        try (final UnresponsiveServer server = new UnresponsiveServer()) {
+            final Endpoint endpoint = server.getEndpoint();
+            final InetSocketAddress address = new InetSocketAddress("localhost", endpoint.getPort());
+            final DownstreamConnector connector = new DownstreamConnector(
+                    endpoint,
+                    new ClientSslHandlerFactory(DownstreamConfig.DISABLED, null),
+                    group,
+                    new AdaptiveRecvByteBufAllocator(),
+                    resolvingTo(singletonList(address)),
+                    new ConnectConfig(1024, 10000, 1, 10000)
+            );
+            final long failuresBefore = Metrics.counter("downstream_connect_failures").get();
+
+            for (int i = 0; i < 3; i++) {
+                connector.connect(ImmediateEventExecutor.INSTANCE.newSucceededFuture(null)).cancel(false);
+            }
+            group.submit(() -> {
+            }).sync();
+
+            assertTrue(connector.isHealthy());
+            assertEquals(failuresBefore, Metrics.counter("downstream_connect_failures").get());
+        } finally {
+            group.shutdownGracefully().sync();
+        }
+    }
+
+    private static AddressResolverGroup<InetSocketAddress> resolvingTo(final List<InetSocketAddress> addresses) {
+        return new AddressResolverGroup<InetSocketAddress>() {
+            @Override
+            protected AddressResolver<InetSocketAddress> newResolver(final EventExecutor executor) {
+                return new AbstractAddressResolver<InetSocketAddress>(executor) {
+                    @Override
+                    protected boolean doIsResolved(final InetSocketAddress address) {
+                        return !address.isUnresolved();
+                    }
+
+                    @Override
+                    protected void doResolve(
+                            final InetSocketAddress unresolved,
+                            final Promise<InetSocketAddress> promise
+                    ) {
+                        promise.setSuccess(addresses.get(0));
+                    }
+
+                    @Override
+                    protected void doResolveAll(
+                            final InetSocketAddress unresolved,
+                            final Promise<List<InetSocketAddress>> promise
+                    ) {
+                        promise.setSuccess(addresses);
+                    }
+                };
+            }
+        };
+    }
+}
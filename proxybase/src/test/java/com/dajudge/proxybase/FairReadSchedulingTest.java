@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.config.DnsConfig;
+import com.dajudge.proxybase.config.ReadBudgetConfig;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertTrue;
+
+public class FairReadSchedulingTest {
+    private static final Logger LOG = LoggerFactory.getLogger(FairReadSchedulingTest.class);
+    private static final int LIGHT_CLIENTS = 8;
+    private static final int PINGS_PER_CLIENT = 50;
+    private static final ReadBudgetConfig BUDGETED = new ReadBudgetConfig(16 * 1024, 4);
+    private static final ReadBudgetConfig UNBUDGETED = new ReadBudgetConfig(Integer.MAX_VALUE, 16);
+
+    @Test
+    public void heavy_client_yields_to_light_clients_sooner_with_read_budget() throws Exception {
+        final long budgeted = heavyBytesPerLightRoundtrip(BUDGETED);
+        final long unbudgeted = heavyBytesPerLightRoundtrip(UNBUDGETED);
+
+        LOG.info("Heavy bytes per light roundtrip: {} with read budget, {} without", budgeted, unbudgeted);
+        assertTrue("Heavy client echoed " + budgeted + " bytes per light roundtrip with read budget, "
+                + unbudgeted + " without", budgeted < unbudgeted);
+    }
+
+    private static long heavyBytesPerLightRoundtrip(final ReadBudgetConfig readBudgetConfig) throws Exception {
+        final ProxyEventLoops eventLoops = new ProxyEventLoops(readBudgetConfig, DnsConfig.DEFAULT, 1);
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try (
+                final EchoServer echoServer = new EchoServer();
+                final TestProxyApplication proxy = TestProxyApplication.start(eventLoops, echoServer.getEndpoint());
+                final Socket heavySocket = new Socket("localhost", proxy.getPort(0))
+        ) {
+            final AtomicBoolean streaming = new AtomicBoolean(true);
+            final AtomicLong heavyBytesEchoed = new AtomicLong();
+            executor.submit(() -> stream(heavySocket.getOutputStream(), streaming));
+            executor.submit(() -> drain(heavySocket.getInputStream(), heavyBytesEchoed));
+            while (heavyBytesEchoed.get() < 1024 * 1024) {
+                Thread.sleep(10);
+            }
+            final List<Future<Void>> lightClients = new ArrayList<>();
+            final long heavyBytesBefore = heavyBytesEchoed.get();
+            for (int i = 0; i < LIGHT_CLIENTS; i++) {
+                lightClients.add(executor.submit(() -> ping(proxy.getPort(0))));
+            }
+            for (final Future<Void> lightClient : lightClients) {
+                lightClient.get(60, SECONDS);
+            }
+            final long heavyBytes = heavyBytesEchoed.get() - heavyBytesBefore;
+            streaming.set(false);
+            return heavyBytes / (LIGHT_CLIENTS * PINGS_PER_CLIENT);
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(10, SECONDS);
+            eventLoops.shutdown();
+        }
+    }
+
+    private static Void stream(final OutputStream os, final AtomicBoolean streaming) throws IOException {
+        final byte[] chunk = new byte[64 * 1024];
+        while (streaming.get()) {
+            os.write(chunk);
+        }
+        return null;
+    }
+
+    private static Void drain(final InputStream is, final AtomicLong bytesRead) throws IOException {
+        final byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = is.read(buffer)) >= 0) {
+            bytesRead.addAndGet(read);
+        }
+        return null;
+    }
+
+    private static Void ping(final int port) throws IOException {
+        try (final Socket socket = new Socket("localhost", port)) {
+            socket.setSoTimeout((int) SECONDS.toMillis(30));
+            final OutputStream os = socket.getOutputStream();
+            final DataInputStream is = new DataInputStream(socket.getInputStream());
+            final byte[] ping = new byte[128];
+            final byte[] pong = new byte[ping.length];
+            for (int i = 0; i < PINGS_PER_CLIENT; i++) {
+                os.write(ping);
+                is.readFully(pong);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import static io.netty.buffer.Unpooled.buffer;
+import static org.junit.Assert.assertEquals;
+
+public class ProxyChannelTest {
+    private final EmbeddedChannel channel = new EmbeddedChannel();
+    private final ProxyChannel.SocketChannelSink sink = new ProxyChannel.SocketChannelSink(channel);
+
+    @Test
+    public void leaves_buffer_to_caller() {
+        final ByteBuf response = buffer().writeInt(42);
+
+        sink.accept(response);
+        final ByteBuf written = channel.readOutbound();
+        assertEquals(42, written.getInt(0));
+        written.release();
+        assertEquals(1, response.refCnt());
+        response.release();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void leaves_buffer_to_caller_on_failed_write() {
+        final ByteBuf response = buffer().writeInt(42);
+        channel.close();
+
+        sink.accept(response);
+
+        assertEquals(1, response.refCnt());
+        response.release();
+    }
+}
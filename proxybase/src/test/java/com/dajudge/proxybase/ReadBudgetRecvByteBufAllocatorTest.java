@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.config.ReadBudgetConfig;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReadBudgetRecvByteBufAllocatorTest {
+    private static final int CHUNK = 1024;
+    private final EmbeddedChannel channel = new EmbeddedChannel();
+
+    @After
+    public void close() {
+        channel.close();
+    }
+
+    @Test
+    public void stops_reading_when_byte_budget_is_exhausted() {
+        final RecvByteBufAllocator allocator = new ReadBudgetRecvByteBufAllocator(new ReadBudgetConfig(4 * CHUNK, 16));
+        assertEquals(4, readsUntilStop(allocator));
+    }
+
+    @Test
+    public void stops_reading_when_message_budget_is_exhausted() {
+        final RecvByteBufAllocator allocator = new ReadBudgetRecvByteBufAllocator(new ReadBudgetConfig(64 * CHUNK, 2));
+        assertEquals(2, readsUntilStop(allocator));
+    }
+
+    private int readsUntilStop(final RecvByteBufAllocator allocator) {
+        final RecvByteBufAllocator.Handle handle = allocator.newHandle();
+        handle.reset(channel.config());
+        int reads = 0;
+        do {
+            handle.attemptedBytesRead(CHUNK);
+            handle.lastBytesRead(CHUNK);
+            handle.incMessagesRead(1);
+            reads++;
+        } while (handle.continueReading() && reads < 1000);
+        return reads;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SessionTicketKeysTest {
+    @Test
+    public void loads_keys_in_file_order() {
+        final byte[] first = key((byte) 1);
+        final byte[] second = key((byte) 2);
+
+        final List<byte[]> keys = SessionTicketKeys.loadKeys(file(encode(first) + "\n\n" + encode(second) + "\n"));
+
+        assertEquals(2, keys.size());
+        assertArrayEquals(first, keys.get(0));
+        assertArrayEquals(second, keys.get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejects_keys_of_wrong_length() {
+        SessionTicketKeys.loadKeys(file(Base64.getEncoder().encodeToString(new byte[32])));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejects_empty_file() {
+        SessionTicketKeys.loadKeys(file("\n"));
+    }
+
+    private static byte[] key(final byte value) {
+        final byte[] key = new byte[48];
+        key[0] = value;
+        return key;
+    }
+
+    private static String encode(final byte[] key) {
+        return Base64.getEncoder().encodeToString(key);
+    }
+
+    private static Supplier<InputStream> file(final String content) {
+        return () -> new ByteArrayInputStream(content.getBytes(UTF_8));
+    }
+}
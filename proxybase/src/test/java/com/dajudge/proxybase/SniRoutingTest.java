@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.config.SniConfig;
+import com.dajudge.proxybase.config.SslSessionConfig;
+import com.dajudge.proxybase.config.TlsProvider;
+import com.dajudge.proxybase.config.UpstreamConfig;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import org.junit.Test;
+
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.net.ServerSocket;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SniRoutingTest {
+    private static final String PASSWORD = "changeit";
+
+    @Test
+    public void routes_by_sni_hostname() throws Exception {
+        final SniConfig sniConfig = new SniConfig(freePort(), "broker-{id}.test");
+        try (
+                final EchoServer first = new EchoServer();
+                final EchoServer second = new EchoServer();
+                final TestProxyApplication ignored = TestProxyApplication.startSni(
+                        upstreamConfig(),
+                        sniConfig,
+                        first.getEndpoint(),
+                        second.getEndpoint()
+                )
+        ) {
+            ping(sniConfig, "broker-1.test");
+            ping(sniConfig, "BROKER-1.test");
+            assertEquals(0, first.getAcceptedConnections());
+            assertEquals(2, second.getAcceptedConnections());
+        }
+    }
+
+    @Test(expected = SSLException.class)
+    public void closes_connections_with_unknown_hostname() throws Exception {
+        final SniConfig sniConfig = new SniConfig(freePort(), "broker-{id}.test");
+        try (
+                final EchoServer echoServer = new EchoServer();
+                final TestProxyApplication ignored = TestProxyApplication.startSni(
+                        upstreamConfig(),
+                        sniConfig,
+                        echoServer.getEndpoint()
+                )
+        ) {
+            ping(sniConfig, "broker-42.test");
+        }
+    }
+
+    private static void ping(final SniConfig sniConfig, final String hostname) throws Exception {
+        final SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, InsecureTrustManagerFactory.INSTANCE.getTrustManagers(), null);
+        try (final SSLSocket client = (SSLSocket) sslContext.getSocketFactory()
+                .createSocket("localhost", sniConfig.getPort())) {
+            final SSLParameters params = client.getSSLParameters();
+            params.setServerNames(singletonList(new SNIHostName(hostname)));
+            client.setSSLParameters(params);
+            client.setSoTimeout((int) SECONDS.toMillis(10));
+            final byte[] ping = {1, 2, 3, 4};
+            final byte[] pong = new byte[ping.length];
+            client.getOutputStream().write(ping);
+            client.getOutputStream().flush();
+            new DataInputStream(client.getInputStream()).readFully(pong);
+            assertArrayEquals(ping, pong);
+        }
+    }
+
+    private static UpstreamConfig upstreamConfig() throws Exception {
+        final SelfSignedCertificate certificate = new SelfSignedCertificate();
+        final KeyStore keyStore = KeyStore.getInstance("jks");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry("proxy", certificate.key(), PASSWORD.toCharArray(), new Certificate[]{
+                certificate.cert()
+        });
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        keyStore.store(bos, PASSWORD.toCharArray());
+        final byte[] jks = bos.toByteArray();
+        return new UpstreamConfig(
+                true,
+                () -> new ByteArrayInputStream(jks),
+                PASSWORD,
+                () -> new ByteArrayInputStream(jks),
+                PASSWORD,
+                PASSWORD,
+                false,
+                TlsProvider.JDK,
+                SslSessionConfig.DEFAULT
+        );
+    }
+
+    private static int freePort() throws Exception {
+        try (final ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
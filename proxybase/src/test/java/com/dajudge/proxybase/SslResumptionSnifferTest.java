@@ -0,0 +1,183 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Test;
+
+import static io.netty.buffer.Unpooled.buffer;
+import static io.netty.buffer.Unpooled.wrappedBuffer;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SslResumptionSnifferTest {
+    private static final int CHANGE_CIPHER_SPEC = 20;
+    private static final int HANDSHAKE = 22;
+    private static final int SERVER_HELLO = 2;
+    private static final int NEW_SESSION_TICKET = 4;
+    private static final int CERTIFICATE = 11;
+    private static final int PRE_SHARED_KEY = 41;
+    private static final int SUPPORTED_VERSIONS = 43;
+    private static final byte[] RANDOM = new byte[32];
+    private static final byte[] HELLO_RETRY_REQUEST = ByteBufUtil.decodeHexDump(
+            "CF21AD74E59A6111BE1D8C021E65B891C2A211167ABB8C5E079E09E2C8A8339C"
+    );
+    private final SslResumptionSniffer sniffer = new SslResumptionSniffer(true);
+    private final EmbeddedChannel channel = new EmbeddedChannel(sniffer);
+
+    @After
+    public void cleanup() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void tls12_certificate_means_full_handshake() {
+        channel.writeInbound(record(HANDSHAKE, wrappedBuffer(
+                serverHello(RANDOM, null),
+                message(CERTIFICATE, buffer().writeZero(16))
+        )));
+
+        assertSniffed(false);
+    }
+
+    @Test
+    public void tls12_change_cipher_spec_means_resumed() {
+        channel.writeInbound(record(HANDSHAKE, serverHello(RANDOM, null)));
+        channel.writeInbound(record(CHANGE_CIPHER_SPEC, buffer().writeByte(1)));
+
+        assertSniffed(true);
+    }
+
+    @Test
+    public void tls12_session_ticket_means_resumed() {
+        channel.writeInbound(record(HANDSHAKE, wrappedBuffer(
+                serverHello(RANDOM, null),
+                message(NEW_SESSION_TICKET, buffer().writeZero(16))
+        )));
+
+        assertSniffed(true);
+    }
+
+    @Test
+    public void tls13_pre_shared_key_means_resumed() {
+        channel.writeInbound(record(HANDSHAKE, serverHello(RANDOM, wrappedBuffer(
+                extension(SUPPORTED_VERSIONS, buffer().writeShort(0x0304)),
+                extension(PRE_SHARED_KEY, buffer().writeShort(0))
+        ))));
+
+        assertSniffed(true);
+    }
+
+    @Test
+    public void tls13_without_pre_shared_key_means_full_handshake() {
+        channel.writeInbound(record(HANDSHAKE, serverHello(RANDOM,
+                extension(SUPPORTED_VERSIONS, buffer().writeShort(0x0304))
+        )));
+
+        assertSniffed(false);
+    }
+
+    @Test
+    public void waits_for_hello_after_hello_retry_request() {
+        channel.writeInbound(record(HANDSHAKE, serverHello(HELLO_RETRY_REQUEST,
+                extension(SUPPORTED_VERSIONS, buffer().writeShort(0x0304))
+        )));
+        channel.writeInbound(record(CHANGE_CIPHER_SPEC, buffer().writeByte(1)));
+
+        assertNotNull(channel.pipeline().get(SslResumptionSniffer.class));
+        channel.writeInbound(record(HANDSHAKE, serverHello(RANDOM, wrappedBuffer(
+                extension(SUPPORTED_VERSIONS, buffer().writeShort(0x0304)),
+                extension(PRE_SHARED_KEY, buffer().writeShort(0))
+        ))));
+
+        assertSniffed(true);
+    }
+
+    @Test
+    public void reassembles_fragmented_records() {
+        final ByteBuf records = wrappedBuffer(
+                record(HANDSHAKE, serverHello(RANDOM, null)),
+                record(CHANGE_CIPHER_SPEC, buffer().writeByte(1))
+        );
+        while (records.isReadable()) {
+            channel.writeInbound(records.readRetainedSlice(1));
+        }
+        records.release();
+
+        assertSniffed(true);
+    }
+
+    @Test
+    public void sniffs_outbound_hello_of_server() {
+        final EmbeddedChannel server = new EmbeddedChannel(new SslResumptionSniffer(false));
+        final SslResumptionSniffer serverSniffer = server.pipeline().get(SslResumptionSniffer.class);
+
+        server.writeOutbound(record(HANDSHAKE, serverHello(RANDOM, null)));
+        server.writeOutbound(record(CHANGE_CIPHER_SPEC, buffer().writeByte(1)));
+
+        assertTrue(serverSniffer.isResumed());
+        assertNull(server.pipeline().get(SslResumptionSniffer.class));
+        server.finishAndReleaseAll();
+    }
+
+    private void assertSniffed(final boolean resumed) {
+        if (resumed) {
+            assertTrue(sniffer.isResumed());
+        } else {
+            assertFalse(sniffer.isResumed());
+        }
+        assertNull(channel.pipeline().get(SslResumptionSniffer.class));
+    }
+
+    private static ByteBuf serverHello(final byte[] random, final ByteBuf extensions) {
+        final ByteBuf body = buffer()
+                .writeShort(0x0303)
+                .writeBytes(random)
+                .writeByte(0)
+                .writeShort(0x1301)
+                .writeByte(0);
+        if (extensions != null) {
+            body.writeShort(extensions.readableBytes()).writeBytes(extensions);
+            extensions.release();
+        }
+        return message(SERVER_HELLO, body);
+    }
+
+    private static ByteBuf extension(final int type, final ByteBuf data) {
+        return prefixed(buffer().writeShort(type).writeShort(data.readableBytes()), data);
+    }
+
+    private static ByteBuf message(final int type, final ByteBuf body) {
+        return prefixed(buffer().writeByte(type).writeMedium(body.readableBytes()), body);
+    }
+
+    private static ByteBuf record(final int type, final ByteBuf fragment) {
+        return prefixed(buffer().writeByte(type).writeShort(0x0303).writeShort(fragment.readableBytes()), fragment);
+    }
+
+    private static ByteBuf prefixed(final ByteBuf header, final ByteBuf content) {
+        header.writeBytes(content);
+        content.release();
+        return header;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.handler.codec.dns.DatagramDnsQuery;
+import io.netty.handler.codec.dns.DatagramDnsQueryDecoder;
+import io.netty.handler.codec.dns.DatagramDnsResponse;
+import io.netty.handler.codec.dns.DatagramDnsResponseEncoder;
+import io.netty.handler.codec.dns.DefaultDnsRawRecord;
+import io.netty.handler.codec.dns.DnsQuestion;
+import io.netty.handler.codec.dns.DnsRecordType;
+import io.netty.handler.codec.dns.DnsSection;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.handler.codec.dns.DnsResponseCode.NXDOMAIN;
+
+class StubDnsServer implements AutoCloseable {
+    private static final byte[] LOOPBACK = {127, 0, 0, 1};
+    private static final long TTL_SECONDS = 60;
+    private final NioEventLoopGroup group = new NioEventLoopGroup(1);
+    private final Map<String, AtomicInteger> queries = new ConcurrentHashMap<>();
+    private final Channel channel;
+
+    StubDnsServer(final String knownName) {
+        try {
+            channel = new Bootstrap()
+                    .group(group)
+                    .channel(NioDatagramChannel.class)
+                    .handler(new ChannelInitializer<DatagramChannel>() {
+                        @Override
+                        protected void initChannel(final DatagramChannel ch) {
+                            ch.pipeline().addLast(
+                                    new DatagramDnsQueryDecoder(),
+                                    new DatagramDnsResponseEncoder(),
+                                    new SimpleChannelInboundHandler<DatagramDnsQuery>() {
+                                        @Override
+                                        protected void channelRead0(
+                                                final ChannelHandlerContext ctx,
+                                                final DatagramDnsQuery query
+                                        ) {
+                                            ctx.writeAndFlush(answer(knownName, query));
+                                        }
+                                    }
+                            );
+                        }
+                    })
+                    .bind("127.0.0.1", 0)
+                    .sync()
+                    .channel();
+        } catch (final InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private DatagramDnsResponse answer(final String knownName, final DatagramDnsQuery query) {
+        final DnsQuestion question = query.recordAt(DnsSection.QUESTION);
+        if (question.type() == DnsRecordType.A) {
+            queries.computeIfAbsent(question.name(), k -> new AtomicInteger()).incrementAndGet();
+        }
+        final DatagramDnsResponse response = new DatagramDnsResponse(query.recipient(), query.sender(), query.id());
+        response.setRecursionAvailable(true);
+        response.addRecord(DnsSection.QUESTION, question);
+        if (!question.name().equals(knownName)) {
+            response.setCode(NXDOMAIN);
+        } else if (question.type() == DnsRecordType.A) {
+            response.addRecord(DnsSection.ANSWER, new DefaultDnsRawRecord(
+                    question.name(),
+                    DnsRecordType.A,
+                    TTL_SECONDS,
+                    Unpooled.wrappedBuffer(LOOPBACK)
+            ));
+        }
+        return response;
+    }
+
+    InetSocketAddress getAddress() {
+        return (InetSocketAddress) channel.localAddress();
+    }
+
+    int getQueries(final String name) {
+        final AtomicInteger count = queries.get(name);
+        return count == null ? 0 : count.get();
+    }
+
+    @Override
+    public void close() {
+        channel.close().syncUninterruptibly();
+        group.shutdownGracefully();
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.ca.NullCertificateAuthority;
+import com.dajudge.proxybase.config.ConnectConfig;
+import com.dajudge.proxybase.config.ConnectionPoolConfig;
+import com.dajudge.proxybase.config.CryptoExecutorConfig;
+import com.dajudge.proxybase.config.DnsConfig;
+import com.dajudge.proxybase.config.DownstreamConfig;
+import com.dajudge.proxybase.config.Endpoint;
+import com.dajudge.proxybase.config.ReadBudgetConfig;
+import com.dajudge.proxybase.config.SniConfig;
+import com.dajudge.proxybase.config.UpstreamConfig;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.Future;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+
+class TestProxyApplication extends ProxyApplication implements AutoCloseable {
+    private static final FilterFactory<ByteBuf> COPYING_FILTER = sink -> new Sink<ByteBuf>() {
+        @Override
+        public Future<?> close() {
+            return sink.close();
+        }
+
+        @Override
+        public void accept(final ByteBuf buffer) {
+            final ByteBuf copy = buffer.copy();
+            try {
+                sink.accept(copy);
+            } finally {
+                copy.release();
+            }
+        }
+    };
+    private final List<Endpoint> downstreamEndpoints;
+    private final SniConfig sniConfig;
+    private final boolean balanced;
+    private List<ProxyChannel> proxyChannels;
+    private List<ProxyListener> listeners;
+
+    private TestProxyApplication(
+            final UpstreamConfig upstreamConfig,
+            final ReadBudgetConfig readBudgetConfig,
+            final ConnectConfig connectConfig,
+            final ConnectionPoolConfig connectionPoolConfig,
+            final SniConfig sniConfig,
+            final boolean balanced,
+            final List<Endpoint> downstreamEndpoints
+    ) {
+        super(
+                upstreamConfig,
+                DownstreamConfig.DISABLED,
+                new NullCertificateAuthority(),
+                readBudgetConfig,
+                connectConfig,
+                DnsConfig.DEFAULT,
+                connectionPoolConfig,
+                sniConfig,
+                CryptoExecutorConfig.DEFAULT
+        );
+        this.sniConfig = sniConfig;
+        this.balanced = balanced;
+        this.downstreamEndpoints = downstreamEndpoints;
+    }
+
+    static TestProxyApplication start(final ReadBudgetConfig readBudgetConfig, final Endpoint... downstreamEndpoints) {
+        return start(readBudgetConfig, ConnectConfig.DEFAULT, ConnectionPoolConfig.DISABLED, downstreamEndpoints);
+    }
+
+    static TestProxyApplication start(final ProxyEventLoops eventLoops, final Endpoint... downstreamEndpoints) {
+        return (TestProxyApplication) new TestProxyApplication(
+                UpstreamConfig.DISABLED,
+                ReadBudgetConfig.DEFAULT,
+                ConnectConfig.DEFAULT,
+                ConnectionPoolConfig.DISABLED,
+                SniConfig.DISABLED,
+                false,
+                asList(downstreamEndpoints)
+        ).start(eventLoops);
+    }
+
+    static TestProxyApplication start(
+            final ReadBudgetConfig readBudgetConfig,
+            final ConnectConfig connectConfig,
+            final ConnectionPoolConfig connectionPoolConfig,
+            final Endpoint... downstreamEndpoints
+    ) {
+        return (TestProxyApplication) new TestProxyApplication(
+                UpstreamConfig.DISABLED,
+                readBudgetConfig,
+                connectConfig,
+                connectionPoolConfig,
+                SniConfig.DISABLED,
+                false,
+                asList(downstreamEndpoints)
+        ).start();
+    }
+
+    static TestProxyApplication startBalanced(final Endpoint... downstreamEndpoints) {
+        return startBalanced(ConnectConfig.DEFAULT, downstreamEndpoints);
+    }
+
+    static TestProxyApplication startBalanced(
+            final ConnectConfig connectConfig,
+            final Endpoint... downstreamEndpoints
+    ) {
+        return (TestProxyApplication) new TestProxyApplication(
+                UpstreamConfig.DISABLED,
+                ReadBudgetConfig.DEFAULT,
+                connectConfig,
+                ConnectionPoolConfig.DISABLED,
+                SniConfig.DISABLED,
+                true,
+                asList(downstreamEndpoints)
+        ).start();
+    }
+
+    static TestProxyApplication startSni(
+            final UpstreamConfig upstreamConfig,
+            final SniConfig sniConfig,
+            final Endpoint... downstreamEndpoints
+    ) {
+        return (TestProxyApplication) new TestProxyApplication(
+                upstreamConfig,
+                ReadBudgetConfig.DEFAULT,
+                ConnectConfig.DEFAULT,
+                ConnectionPoolConfig.DISABLED,
+                sniConfig,
+                false,
+                asList(downstreamEndpoints)
+        ).start();
+    }
+
+    @Override
+    protected Collection<ProxyListener> initializeProxyChannels(final ProxyChannelFactory proxyChannelFactory) {
+        proxyChannels = IntStream.range(0, downstreamEndpoints.size())
+                .mapToObj(i -> proxyChannelFactory.createProxyChannel(
+                        upstreamEndpoint(i),
+                        downstreamEndpoints.get(i),
+                        COPYING_FILTER,
+                        COPYING_FILTER
+                ))
+                .collect(toList());
+        listeners = new ArrayList<>(proxyChannels);
+        if (balanced) {
+            listeners.add(proxyChannelFactory.createBalancingProxyChannel(upstreamEndpoint(0), () -> proxyChannels));
+        }
+        listeners.forEach(listener -> listener.start().syncUninterruptibly());
+        return listeners;
+    }
+
+    private Endpoint upstreamEndpoint(final int index) {
+        if (sniConfig.isEnabled()) {
+            return new Endpoint(sniConfig.hostnameOf(index), sniConfig.getPort());
+        }
+        return new Endpoint("localhost", 0);
+    }
+
+    int getPort(final int index) {
+        return listeners.get(index).getPort();
+    }
+
+    ProxyChannel getProxyChannel(final int index) {
+        return proxyChannels.get(index);
+    }
+
+    @Override
+    public void close() {
+        shutdown();
+    }
+}
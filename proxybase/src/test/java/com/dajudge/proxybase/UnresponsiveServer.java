@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase;
+
+import com.dajudge.proxybase.config.Endpoint;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A stand-in broker that never accepts connections. Its accept queue is filled up on creation, so
+ * further connection attempts are stuck in the TCP handshake until they time out.
+ */
+class UnresponsiveServer implements AutoCloseable {
+    private final ServerSocket serverSocket;
+    private final List<Socket> backlog = new ArrayList<>();
+
+    UnresponsiveServer() throws IOException {
+        serverSocket = new ServerSocket(0, 1, InetAddress.getByName("localhost"));
+        while (true) {
+            final Socket socket = new Socket();
+            try {
+                socket.connect(serverSocket.getLocalSocketAddress(), 200);
+                backlog.add(socket);
+            } catch (final SocketTimeoutException e) {
+                socket.close();
+                return;
+            }
+        }
+    }
+
+    Endpoint getEndpoint() {
+        return new Endpoint("localhost", ((InetSocketAddress) serverSocket.getLocalSocketAddress()).getPort());
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (final Socket socket : backlog) {
+            socket.close();
+        }
+        serverSocket.close();
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2019-2020 The kafkaproxy developers (see CONTRIBUTORS)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.dajudge.proxybase.metrics;
+
+import org.junit.Test;
+
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.assertEquals;
+
+public class MetricsTest {
+    @Test
+    public void sums_gauges_registered_under_same_name() {
+        final LongSupplier first = () -> 3;
+        final LongSupplier second = () -> 4;
+        Metrics.gauge("test_gauge").add(first);
+        Metrics.gauge("test_gauge").add(second);
+
+        assertEquals(Long.valueOf(7), Metrics.snapshot().get("test_gauge"));
+
+        Metrics.gauge("test_gauge").remove(first);
+
+        assertEquals(Long.valueOf(4), Metrics.snapshot().get("test_gauge"));
+        Metrics.gauge("test_gauge").remove(second);
+    }
+}